@@ -0,0 +1,36 @@
+package com.profiprog.configinject.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.profiprog.configinject.VariableResolver;
+
+/**
+ * Runs all benchmarks with GC profiler (allocation per operation) and writes results
+ * as JSON into {@code jmh-result-<config-injection version>.json}.
+ * <p>Results of different releases can be compared by building benchmarks against them:
+ * <pre>
+ * mvn package -DconfigInjectionVersion=1.4
+ * java -jar target/benchmarks.jar
+ * mvn package
+ * java -jar target/benchmarks.jar
+ * </pre>
+ * Any standard JMH command line option can be passed (e.g. {@code VariableResolver -f 1}).
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {}
+
+	public static void main(String[] args) throws Exception {
+		String version = VariableResolver.class.getPackage().getImplementationVersion();
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("jmh-result-" + (version == null ? "dev" : version) + ".json")
+				.build()).run();
+	}
+}
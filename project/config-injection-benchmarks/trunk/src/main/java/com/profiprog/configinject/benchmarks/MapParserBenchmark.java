@@ -0,0 +1,36 @@
+package com.profiprog.configinject.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.profiprog.configinject.util.MapParser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapParserBenchmark {
+
+	@Param({ "10", "1000" })
+	public int entries;
+
+	private String definition;
+
+	@Setup
+	public void setup() {
+		definition = Shapes.inlineMap(entries);
+	}
+
+	@Benchmark
+	public Map<String, String> parseMap() {
+		return MapParser.parseMap(definition);
+	}
+}
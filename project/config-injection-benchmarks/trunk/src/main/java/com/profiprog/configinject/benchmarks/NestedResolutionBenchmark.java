@@ -0,0 +1,46 @@
+package com.profiprog.configinject.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.profiprog.configinject.MapVariableSource;
+import com.profiprog.configinject.VariableResolver;
+
+/**
+ * Deeply nested {@code ${a.${b}}} definitions, every level goes through
+ * circular substitution tracking. Run with GC profiler ({@link BenchmarkRunner} does)
+ * to see allocation rate of resolution tracking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NestedResolutionBenchmark {
+
+	@Param({ "1", "8", "32" })
+	public int depth;
+
+	private VariableResolver resolver;
+
+	@Setup
+	public void setup() {
+		resolver = new VariableResolver(new MapVariableSource(Shapes.chain(depth)));
+	}
+
+	@Benchmark
+	public String resolveValue() {
+		return resolver.resolveValue("chain.0");
+	}
+
+	@Benchmark
+	public String resolveMissingWithDefault() {
+		return resolver.resolveValue("missing.${next.0}", "default");
+	}
+}
@@ -0,0 +1,79 @@
+package com.profiprog.configinject.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.profiprog.configinject.Properties;
+
+/**
+ * Large property files with many prefixed views.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PropertiesBenchmark {
+
+	@Param({ "1000", "20000" })
+	public int keys;
+
+	@Param({ "50" })
+	public int prefixes;
+
+	private File file;
+	private Properties properties;
+	private int counter;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Shapes.propertyFile(keys, prefixes);
+		properties = new Properties(file, "ISO-8859-1");
+	}
+
+	private String nextPrefix() {
+		return Shapes.prefix(counter++ % prefixes);
+	}
+
+	@Benchmark
+	public String getProperty() {
+		return properties.getProperty(nextPrefix() + ".key0");
+	}
+
+	@Benchmark
+	public String selectAndGetProperty() {
+		return properties.select(nextPrefix()).getProperty("key0");
+	}
+
+	@Benchmark
+	public void selectAndIterate(Blackhole blackhole) {
+		for (String key : properties.select(nextPrefix())) blackhole.consume(key);
+	}
+
+	@Benchmark
+	public int selectSize() {
+		return properties.select(nextPrefix(), "group3").size();
+	}
+
+	@Benchmark
+	public Map<String, String> selectToMap() {
+		return properties.select(nextPrefix()).toMap();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Properties load() {
+		return new Properties(file, "ISO-8859-1");
+	}
+}
@@ -0,0 +1,104 @@
+package com.profiprog.configinject.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Realistic inputs shared by benchmarks.
+ * Only API available in released versions of config-injection is used,
+ * so same benchmarks can be run against older release (see {@link BenchmarkRunner}).
+ */
+final class Shapes {
+
+	private Shapes() {}
+
+	/**
+	 * Expression shapes by name, used as {@code @Param} values.
+	 */
+	static String expression(String shape) {
+		if ("plain".equals(shape)) return "jdbc:postgresql://localhost:5432/application";
+		if ("flat".equals(shape)) return "http://${host}:${port}/${context}/index.html";
+		if ("short".equals(shape)) return "$host:$port";
+		if ("nested".equals(shape)) return "${db.${env}.url}/${app.${env}.${region}.name}";
+		if ("defaults".equals(shape)) return "${missing.host:localhost}:${missing.port:8080}/${context:app}";
+		if ("escaped".equals(shape)) return "price $$5 and $$${port} or ${$} $$$$";
+		throw new IllegalArgumentException("Unknown shape " + shape);
+	}
+
+	/**
+	 * Variables referenced by {@link #expression(String)}.
+	 */
+	static Map<String, String> variables() {
+		Map<String, String> result = new HashMap<String, String>();
+		result.put("host", "config.example.com");
+		result.put("port", "8080");
+		result.put("context", "app");
+		result.put("env", "prod");
+		result.put("region", "eu");
+		result.put("db.prod.url", "jdbc:postgresql://${host}:5432/app");
+		result.put("app.prod.eu.name", "application-${region}");
+		return result;
+	}
+
+	/**
+	 * Chain of variables {@code chain.0 -> chain.1 -> ... -> chain.<depth>}
+	 * where names of next links are nested in names ({@code ${chain.${next.0}}}).
+	 */
+	static Map<String, String> chain(int depth) {
+		Map<String, String> result = new HashMap<String, String>();
+		for (int i = 0; i < depth; i++) {
+			result.put("next." + i, String.valueOf(i + 1));
+			result.put("chain." + i, "<${chain.${next." + i + "}}>");
+		}
+		result.put("chain." + depth, "end");
+		return result;
+	}
+
+	static String prefix(int index) {
+		return "module" + index + ".component";
+	}
+
+	/**
+	 * Generates property file with {@code keys} keys spread under {@code prefixes} prefixes,
+	 * every prefix contains direct children and nested sub-trees.
+	 */
+	static File propertyFile(int keys, int prefixes) throws IOException {
+		File file = File.createTempFile("config-injection-benchmark", ".properties");
+		file.deleteOnExit();
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+		try {
+			for (int i = 0; i < keys; i++) {
+				String prefix = prefix(i % prefixes);
+				int n = i / prefixes;
+				String key = n % 3 == 0 ? prefix + ".key" + n : prefix + ".group" + (n % 7) + ".key" + n;
+				out.write(key + " = value " + i + " with ${host} reference\n");
+				if (i % 100 == 0) out.write("# comment line " + i + "\n");
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Inline map definition as accepted by {@code MapParser.parseMap(String)}.
+	 */
+	static String inlineMap(int entries) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < entries; i++) {
+			if (i > 0) sb.append(", ");
+			switch (i % 4) {
+			case 0: sb.append("route").append(i).append(" : /path/").append(i); break;
+			case 1: sb.append("'route ").append(i).append("' : ' spaced value '"); break;
+			case 2: sb.append("route").append(i).append(":\"a,b\\,c\""); break;
+			default: sb.append("route").append(i); break;
+			}
+		}
+		return sb.toString();
+	}
+}
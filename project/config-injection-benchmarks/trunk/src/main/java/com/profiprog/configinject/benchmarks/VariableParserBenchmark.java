@@ -0,0 +1,47 @@
+package com.profiprog.configinject.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.profiprog.configinject.VariableParser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VariableParserBenchmark {
+
+	@Param({ "plain", "flat", "nested", "defaults", "escaped" })
+	public String shape;
+
+	private String expression;
+
+	@Setup
+	public void setup() {
+		expression = Shapes.expression(shape);
+	}
+
+	@Benchmark
+	public int find() {
+		VariableParser parser = new VariableParser(expression);
+		int count = 0;
+		while (parser.find()) count++;
+		return count;
+	}
+
+	@Benchmark
+	public String findAndReplace() {
+		VariableParser parser = new VariableParser(expression);
+		StringBuilder sb = new StringBuilder(expression.length());
+		while (parser.find()) parser.appendReplacement(sb, parser.variableName());
+		parser.appendTail(sb);
+		return sb.toString();
+	}
+}
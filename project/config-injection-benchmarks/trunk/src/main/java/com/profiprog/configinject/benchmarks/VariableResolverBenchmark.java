@@ -0,0 +1,46 @@
+package com.profiprog.configinject.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.profiprog.configinject.MapVariableSource;
+import com.profiprog.configinject.VariableResolver;
+import com.profiprog.configinject.VariableSource;
+
+/**
+ * Resolving strings through chain of sources, where most lookups miss first sources
+ * (like variables resolved from property file behind system and environment sources).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VariableResolverBenchmark {
+
+	@Param({ "plain", "short", "flat", "nested", "defaults", "escaped" })
+	public String shape;
+
+	private String expression;
+	private VariableResolver resolver;
+
+	@Setup
+	public void setup() {
+		expression = Shapes.expression(shape);
+		resolver = new VariableResolver(
+				VariableSource.SYSTEM,
+				new MapVariableSource(),
+				new MapVariableSource(Shapes.variables()));
+	}
+
+	@Benchmark
+	public String resolveStringValue() {
+		return resolver.resolveStringValue(expression);
+	}
+}
@@ -0,0 +1,29 @@
+package com.profiprog.configinject;
+
+/**
+ * @see ConfigProvider#getBooleanProperty(String, boolean)
+ */
+public final class BooleanProperty extends PropertyHandle {
+
+	private final boolean defaultValue;
+	private volatile boolean value;
+
+	BooleanProperty(String expression, boolean defaultValue) {
+		super(expression);
+		this.defaultValue = defaultValue;
+	}
+
+	public boolean get() {
+		return value;
+	}
+
+	@Override
+	void update(Object value) {
+		this.value = value == null ? defaultValue : (Boolean) value;
+	}
+
+	@Override
+	public String toString() {
+		return getExpression() + "=" + value;
+	}
+}
@@ -5,6 +5,16 @@ public interface ChangeableVariableSource extends VariableSource {
 	interface VariableSourceChangeHandler {
 		void notifyVariableSourceChange(ChangeableVariableSource changedSource);
 	}
+
+	/**
+	 * Handler interested in changed variable names. Sources which are able to determine
+	 * changed variables call {@link #notifyVariablesChange(ChangeableVariableSource, VariableChanges)}
+	 * instead of {@link #notifyVariableSourceChange(ChangeableVariableSource)}.
+	 * @see VariableChanges#notifyChange(VariableSourceChangeHandler, ChangeableVariableSource, VariableChanges)
+	 */
+	interface VariablesChangeHandler extends VariableSourceChangeHandler {
+		void notifyVariablesChange(ChangeableVariableSource changedSource, VariableChanges changes);
+	}
 	
 	void setVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler);
 }
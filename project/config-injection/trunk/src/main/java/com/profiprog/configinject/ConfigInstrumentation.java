@@ -0,0 +1,38 @@
+package com.profiprog.configinject;
+
+import java.io.File;
+
+/**
+ * Receives measurements of variable resolving, reloading and injecting.
+ * Instrumentation is disabled by default, implementation has to be thread safe and fast.
+ * @see JmxConfigInstrumentation
+ * @see VariableResolver#setInstrumentation(ConfigInstrumentation)
+ * @see PropertyFileVariableSource#setInstrumentation(ConfigInstrumentation)
+ */
+public interface ConfigInstrumentation {
+
+	/**
+	 * Variable was looked up in one of sources of {@link VariableResolver}.
+	 * @param sourceIndex zero based index of source in resolver
+	 */
+	void sourceLookup(int sourceIndex, VariableSource source, String variableName, boolean found, long nanos);
+
+	/**
+	 * Value of variable was resolved by {@link VariableResolver#resolveValue(String, String)}.
+	 */
+	void variableResolved(String variableName);
+
+	/**
+	 * Resolved value was looked up in cache of {@link VariableResolver}.
+	 */
+	void valueCacheLookup(String variableName, boolean hit);
+
+	void circularSubstitution(String variableName);
+
+	void fileReloaded(File file, long nanos);
+
+	/**
+	 * {@link AutoConfig} target or property handle was injected again after change of variables.
+	 */
+	void valueReinjected(String expression);
+}
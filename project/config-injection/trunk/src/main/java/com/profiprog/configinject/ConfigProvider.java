@@ -1,41 +1,151 @@
 package com.profiprog.configinject;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Required;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 
+import com.profiprog.configinject.ChangeableVariableSource.VariableSourceChangeHandler;
+import com.profiprog.configinject.ChangeableVariableSource.VariablesChangeHandler;
 import com.profiprog.configinject.PropertyConverter.DefaultPopertyConverter;
 
+/**
+ * Injects values into {@link AutoConfig} annotated fields and methods.
+ * <p>Names of variables read by converter are recorded for every injection, so when
+ * variables are changed only injections depending on them are performed again (in priority order).
+ */
 public class ConfigProvider implements BeanPostProcessor, InitializingBean {
 	
+	private static final Logger logger = LoggerFactory.getLogger(ConfigProvider.class);
+	
 	private VariableResolver variables;
 	
-	private List<ValueInjector> targets = new ArrayList<ValueInjector>();
+	/**
+	 * Injection targets grouped by priority, each group is in order of registration.
+	 */
+	private final NavigableMap<Integer, List<InjectionTarget>> targets = new TreeMap<Integer, List<InjectionTarget>>();
+	
+	/**
+	 * Injection targets by names of variables read during their last injection.
+	 */
+	private final Map<String, Set<InjectionTarget>> dependents = new HashMap<String, Set<InjectionTarget>>();
+	
+	private int registeredTargets;
+
+	/**
+	 * Registered property handles by handle class, expression, type, converter and default value,
+	 * so repeated calls of getter don't register more targets.
+	 */
+	private final Map<List<Object>, PropertyHandle> handles = new HashMap<List<Object>, PropertyHandle>();
+	
+	/**
+	 * {@link AutoConfig} members by bean class, so classes are scanned only once.
+	 */
+	private final ConcurrentMap<Class<?>, InjectionPlan> injectionPlans = new ConcurrentHashMap<Class<?>, InjectionPlan>();
 	
 	private Map<Class<?>, PropertyConverter<?>> converters = new HashMap<Class<?>, PropertyConverter<?>>();
 	
-	private static final Comparator<ValueInjector> PRIORITYCOMPARATOR  = new Comparator<ValueInjector>() {
+	private static final class InjectionTarget {
+		final ValueInjector injector;
+		final int priority;
+		final int order;
+		Set<String> dependencies = Collections.emptySet();
+		
+		InjectionTarget(ValueInjector injector, int order) {
+			this.injector = injector;
+			this.priority = injector.priority();
+			this.order = order;
+		}
+	}
+	
+	/**
+	 * Injects converted values into {@link PropertyHandle}.
+	 */
+	private static final class HandleInjector implements ValueInjector {
+		private final PropertyHandle handle;
+		private final Class<?> type;
+		private final Class<? extends PropertyConverter<?>> converter;
+		
+		HandleInjector(PropertyHandle handle, Class<?> type, Class<? extends PropertyConverter<?>> converter) {
+			this.handle = handle;
+			this.type = type;
+			this.converter = converter;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return type;
+		}
+
+		@Override
+		public void inject(Object value) {
+			handle.update(value);
+		}
+
+		@Override
+		public String getExpression() {
+			return handle.getExpression();
+		}
+
+		@Override
+		public int priority() {
+			return 0;
+		}
+
+		@Override
+		public Class<? extends PropertyConverter<?>> preferedPropertyConverter() {
+			return converter;
+		}
+
+		@Override
+		public String configValue() {
+			return "";
+		}
+	}
+	
+	private static final Comparator<InjectionTarget> PRIORITYCOMPARATOR  = new Comparator<InjectionTarget>() {
 		@Override
-		public int compare(ValueInjector o1, ValueInjector o2) {
-			return o1.priority() - o2.priority();
+		public int compare(InjectionTarget o1, InjectionTarget o2) {
+			if (o1.priority != o2.priority) return o1.priority < o2.priority ? -1 : 1;
+			return o1.order < o2.order ? -1 : o1.order == o2.order ? 0 : 1;
+		}
+	};
+	
+	private final VariableSourceChangeHandler changeHandler = new VariablesChangeHandler() {
+		@Override
+		public void notifyVariableSourceChange(ChangeableVariableSource changedSource) {
+			reinject(null);
+		}
+		
+		@Override
+		public void notifyVariablesChange(ChangeableVariableSource changedSource, VariableChanges changes) {
+			reinject(changes);
 		}
 	};
 	
 	@Required
 	public void setVariableResolver(VariableResolver variables) {
+		if (this.variables != null) this.variables.removeVariableSourceChangeHandler(changeHandler);
 		this.variables = variables;
+		variables.addVariableSourceChangeHandler(changeHandler);
 	}
 	
 	public VariableResolver getVariableResolver() {
@@ -58,32 +168,44 @@ public class ConfigProvider implements BeanPostProcessor, InitializingBean {
 		registerConverter(new DefaultIntegerPropertyConverter());
 		registerConverter(new DefaultStringPropertyConverter());
 		registerConverter(new DefaultFilePropertyConverter());
+		registerConverter(new DefaultLongPropertyConverter());
+		registerConverter(new DefaultBooleanPropertyConverter());
+		registerConverter(new DefaultDoublePropertyConverter());
+		// converters with units are selected only explicitly, plain Long values stay numbers
+		converters.put(DurationPropertyConverter.class, new DurationPropertyConverter());
+		converters.put(DataSizePropertyConverter.class, new DataSizePropertyConverter());
 	}
 	
 	@Override
 	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
-		List<ValueInjector> recentlyAdded = new LinkedList<ValueInjector>();
+		InjectionPlan plan = injectionPlan(bean.getClass());
+		if (plan.isEmpty()) return bean;
 		
-		for (Field field : bean.getClass().getDeclaredFields()) {
-			if (field.isAnnotationPresent(AutoConfig.class)) {
-				ValueInjector injector = new FieldReflectionInjector(field, bean);
-				recentlyAdded.add(injector);
-				targets.add(injector);
-			}
+		synchronized (this) {
+			// injectors of plan are already ordered by priority
+			for (ValueInjector injector : plan.createInjectors(bean)) performInjection(registerTarget(injector));
 		}
-		for (Method method : bean.getClass().getDeclaredMethods()) {
-			if (method.isAnnotationPresent(AutoConfig.class)) {
-				ValueInjector injector = new MethodReflectionInjector(method, bean);
-				recentlyAdded.add(injector);
-				targets.add(injector);
-			}
-		}
-		Collections.sort(recentlyAdded, PRIORITYCOMPARATOR);
-		for (ValueInjector injector: recentlyAdded) performInjection(injector);
-		Collections.sort(targets, PRIORITYCOMPARATOR);
 		return bean;
 	}
 	
+	private InjectionPlan injectionPlan(Class<?> type) {
+		InjectionPlan plan = injectionPlans.get(type);
+		if (plan == null) {
+			plan = InjectionPlan.forClass(type);
+			InjectionPlan concurrent = injectionPlans.putIfAbsent(type, plan);
+			if (concurrent != null) plan = concurrent;
+		}
+		return plan;
+	}
+	
+	private InjectionTarget registerTarget(ValueInjector injector) {
+		InjectionTarget target = new InjectionTarget(injector, registeredTargets++);
+		List<InjectionTarget> group = targets.get(target.priority);
+		if (group == null) targets.put(target.priority, group = new ArrayList<InjectionTarget>());
+		group.add(target);
+		return target;
+	}
+	
 	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException { return bean; };
 
 	public <T> T getTypedProperty(String expr, Class<T> type) {
@@ -95,12 +217,153 @@ public class ConfigProvider implements BeanPostProcessor, InitializingBean {
 		return type.cast(converters.get(type).convert(variables, expr, null));
 	}
 	
-	public void afterPropertiesSet() throws Exception {
+	public <T> TypedProperty<T> getPropertyHandle(String expr, Class<T> type) {
+		return getPropertyHandle(expr, type, null);
+	}
+	
+	/**
+	 * Handle is registered by the first call, following calls with equal arguments return the same handle.
+	 * Handle should be obtained once and kept, because each call looks it up.
+	 * @return handle of value converted by converter registered for given type
+	 */
+	public <T> TypedProperty<T> getPropertyHandle(String expr, Class<T> type, T defaultValue) {
+		return registerHandle(new TypedProperty<T>(expr, type, defaultValue), type, DefaultPopertyConverter.class, defaultValue);
+	}
+	
+	/**
+	 * @see #getPropertyHandle(String, Class, Object)
+	 */
+	public LongProperty getLongProperty(String expr, long defaultValue) {
+		return registerHandle(new LongProperty(expr, defaultValue), Long.class, DefaultPopertyConverter.class, defaultValue);
+	}
+	
+	/**
+	 * @see #getPropertyHandle(String, Class, Object)
+	 */
+	public BooleanProperty getBooleanProperty(String expr, boolean defaultValue) {
+		return registerHandle(new BooleanProperty(expr, defaultValue), Boolean.class, DefaultPopertyConverter.class, defaultValue);
+	}
+	
+	/**
+	 * @see #getPropertyHandle(String, Class, Object)
+	 */
+	public DoubleProperty getDoubleProperty(String expr, double defaultValue) {
+		return registerHandle(new DoubleProperty(expr, defaultValue), Double.class, DefaultPopertyConverter.class, defaultValue);
+	}
+	
+	/**
+	 * @return handle of duration in milliseconds
+	 * @see DurationPropertyConverter
+	 * @see #getPropertyHandle(String, Class, Object)
+	 */
+	public LongProperty getDurationProperty(String expr, long defaultMillis) {
+		return registerHandle(new LongProperty(expr, defaultMillis), Long.class, DurationPropertyConverter.class, defaultMillis);
+	}
+	
+	/**
+	 * @return handle of data size in bytes
+	 * @see DataSizePropertyConverter
+	 * @see #getPropertyHandle(String, Class, Object)
+	 */
+	public LongProperty getDataSizeProperty(String expr, long defaultBytes) {
+		return registerHandle(new LongProperty(expr, defaultBytes), Long.class, DataSizePropertyConverter.class, defaultBytes);
+	}
+	
+	private synchronized <H extends PropertyHandle> H registerHandle(H handle, Class<?> type,
+			Class<? extends PropertyConverter<?>> converter, Object defaultValue) {
+		List<Object> key = Arrays.<Object>asList(handle.getClass(), handle.getExpression(), type, converter, defaultValue);
+		@SuppressWarnings("unchecked")
+		H registered = (H) handles.get(key);
+		if (registered != null) return registered;
+
+		InjectionTarget target = registerTarget(new HandleInjector(handle, type, converter));
+		try {
+			performInjection(target);
+		} catch (RuntimeException e) {
+			targets.get(target.priority).remove(target);
+			updateDependencies(target, Collections.<String>emptySet());
+			throw e;
+		}
+		handles.put(key, handle);
+		return handle;
+	}
+	
+	public synchronized void afterPropertiesSet() throws Exception {
 		if (converters.size() == 0) initBasicConverters();
-		for (ValueInjector injector : targets) performInjection(injector);
+		for (List<InjectionTarget> group : targets.values())
+			for (InjectionTarget target : group) performInjection(target);
+	}
+	
+	/**
+	 * Performs again injections depending on changed variables, errors are only logged.
+	 * Change noticed during variable lookup is notified by other thread, so reinjection
+	 * doesn't delay the lookup and isn't performed within its evaluation.
+	 * @param changes changed variables or {@code null} for all injections
+	 * @see VariableResolver#setChangeNotificationExecutor(java.util.concurrent.Executor)
+	 */
+	private synchronized void reinject(VariableChanges changes) {
+		List<InjectionTarget> affected = new ArrayList<InjectionTarget>();
+		if (changes == null) {
+			for (List<InjectionTarget> group : targets.values()) affected.addAll(group);
+		}
+		else {
+			Set<InjectionTarget> collected = new HashSet<InjectionTarget>();
+			collectDependents(changes.getAdded(), collected);
+			collectDependents(changes.getRemoved(), collected);
+			collectDependents(changes.getChanged(), collected);
+			affected.addAll(collected);
+			Collections.sort(affected, PRIORITYCOMPARATOR);
+		}
+		
+		ConfigInstrumentation instrumentation = variables.getInstrumentation();
+		for (InjectionTarget target : affected) {
+			try {
+				performInjection(target);
+				if (instrumentation != null) instrumentation.valueReinjected(target.injector.getExpression());
+			} catch (RuntimeException e) {
+				logger.error("Can't inject changed value of " + target.injector.getExpression(), e);
+			}
+		}
+	}
+	
+	private void collectDependents(Set<String> variableNames, Set<InjectionTarget> result) {
+		for (String variableName : variableNames) {
+			Set<InjectionTarget> found = dependents.get(variableName);
+			if (found != null) result.addAll(found);
+		}
+	}
+
+	private void performInjection(InjectionTarget target) {
+		ValueInjector injector = target.injector;
+		PropertyConverter<?> converter = resolveConverter(injector);
+		
+		Set<String> dependencies = new HashSet<String>();
+		Set<String> previous = variables.recordDependencies(dependencies);
+		Object value;
+		try {
+			value = converter.convert(variables, injector.getExpression(), injector.configValue());
+		} finally {
+			variables.recordDependencies(previous);
+		}
+		updateDependencies(target, dependencies);
+		injector.inject(value);
+	}
+	
+	private void updateDependencies(InjectionTarget target, Set<String> dependencies) {
+		if (dependencies.equals(target.dependencies)) return;
+		for (String variableName : target.dependencies) {
+			Set<InjectionTarget> found = dependents.get(variableName);
+			if (found != null && found.remove(target) && found.isEmpty()) dependents.remove(variableName);
+		}
+		for (String variableName : dependencies) {
+			Set<InjectionTarget> found = dependents.get(variableName);
+			if (found == null) dependents.put(variableName, found = new LinkedHashSet<InjectionTarget>());
+			found.add(target);
+		}
+		target.dependencies = dependencies;
 	}
 
-	private void performInjection(ValueInjector injector) {
+	private PropertyConverter<?> resolveConverter(ValueInjector injector) {
 		Class<?> converterType = injector.preferedPropertyConverter();
 		if (converterType == DefaultPopertyConverter.class) converterType = injector.getType();
 		PropertyConverter<?> converter = converters.get(converterType);
@@ -115,7 +378,6 @@ public class ConfigProvider implements BeanPostProcessor, InitializingBean {
 			}
 			else throw new IllegalStateException("Not found PropertyConverter for type " + converterType.getName());
 		}
-
-		injector.inject(converter.convert(variables, injector.getExpression(), injector.configValue()));
+		return converter;
 	}
 }
@@ -0,0 +1,38 @@
+package com.profiprog.configinject;
+
+/**
+ * Converts data size to bytes. Value is number followed by optional unit
+ * <code>B</code>, <code>KB</code>, <code>MB</code>, <code>GB</code> or <code>TB</code> (multiples of 1024),
+ * number without unit is in bytes (e.g. <code>512</code>, <code>64KB</code>, <code>10MB</code>).
+ * <p>Converter isn't used for {@link Long} values by default, it has to be selected explicitly.
+ */
+public class DataSizePropertyConverter implements PropertyConverter<Long> {
+
+	private static final String UNITS = "BKMGT";
+
+	@Override
+	public Long convert(VariableResolver variables, String name, String defaultValue) {
+		String result = variables.resolveValue(name);
+		return result == null ? null : parseBytes(result);
+	}
+
+	public static long parseBytes(String size) {
+		String value = size.trim();
+		int unitIndex = DurationPropertyConverter.unitIndex(value);
+		long amount = Long.parseLong(value.substring(0, unitIndex).trim());
+		String unit = value.substring(unitIndex).toUpperCase();
+		if (unit.length() == 0 || unit.equals("B")) return amount;
+		int exponent = UNITS.indexOf(unit.charAt(0));
+		if (unit.length() != 2 || unit.charAt(1) != 'B' || exponent < 1)
+			throw new IllegalArgumentException("Unknown unit of data size " + size);
+		int shift = 10 * exponent;
+		if (amount > Long.MAX_VALUE >> shift || amount < Long.MIN_VALUE >> shift)
+			throw new IllegalArgumentException("Data size " + size + " is out of range");
+		return amount << shift;
+	}
+
+	@Override
+	public Class<Long> getType() {
+		return Long.class;
+	}
+}
@@ -0,0 +1,17 @@
+package com.profiprog.configinject;
+
+
+
+class DefaultBooleanPropertyConverter implements PropertyConverter<Boolean> {
+
+	@Override
+	public Boolean convert(VariableResolver variables, String name, String defaultValue) {
+		String result = variables.resolveValue(name);
+		return result == null ? null : Boolean.valueOf(result.trim());
+	}
+
+	@Override
+	public Class<Boolean> getType() {
+		return Boolean.class;
+	}
+}
@@ -0,0 +1,17 @@
+package com.profiprog.configinject;
+
+
+
+class DefaultDoublePropertyConverter implements PropertyConverter<Double> {
+
+	@Override
+	public Double convert(VariableResolver variables, String name, String defaultValue) {
+		String result = variables.resolveValue(name);
+		return result == null ? null : Double.parseDouble(result.trim());
+	}
+
+	@Override
+	public Class<Double> getType() {
+		return Double.class;
+	}
+}
@@ -0,0 +1,17 @@
+package com.profiprog.configinject;
+
+
+
+class DefaultLongPropertyConverter implements PropertyConverter<Long> {
+
+	@Override
+	public Long convert(VariableResolver variables, String name, String defaultValue) {
+		String result = variables.resolveValue(name);
+		return result == null ? null : Long.parseLong(result.trim());
+	}
+
+	@Override
+	public Class<Long> getType() {
+		return Long.class;
+	}
+}
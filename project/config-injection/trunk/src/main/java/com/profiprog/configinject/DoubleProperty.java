@@ -0,0 +1,29 @@
+package com.profiprog.configinject;
+
+/**
+ * @see ConfigProvider#getDoubleProperty(String, double)
+ */
+public final class DoubleProperty extends PropertyHandle {
+
+	private final double defaultValue;
+	private volatile double value;
+
+	DoubleProperty(String expression, double defaultValue) {
+		super(expression);
+		this.defaultValue = defaultValue;
+	}
+
+	public double get() {
+		return value;
+	}
+
+	@Override
+	void update(Object value) {
+		this.value = value == null ? defaultValue : (Double) value;
+	}
+
+	@Override
+	public String toString() {
+		return getExpression() + "=" + value;
+	}
+}
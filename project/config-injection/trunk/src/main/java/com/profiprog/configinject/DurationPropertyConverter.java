@@ -0,0 +1,42 @@
+package com.profiprog.configinject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts duration to milliseconds. Value is number followed by optional unit
+ * <code>ms</code>, <code>s</code>, <code>m</code>, <code>h</code> or <code>d</code>,
+ * number without unit is in milliseconds (e.g. <code>1500</code>, <code>30s</code>, <code>5m</code>).
+ * <p>Converter isn't used for {@link Long} values by default, it has to be selected explicitly.
+ */
+public class DurationPropertyConverter implements PropertyConverter<Long> {
+
+	@Override
+	public Long convert(VariableResolver variables, String name, String defaultValue) {
+		String result = variables.resolveValue(name);
+		return result == null ? null : parseMillis(result);
+	}
+
+	public static long parseMillis(String duration) {
+		String value = duration.trim();
+		int unitIndex = unitIndex(value);
+		long amount = Long.parseLong(value.substring(0, unitIndex).trim());
+		String unit = value.substring(unitIndex).toLowerCase();
+		if (unit.length() == 0 || unit.equals("ms")) return amount;
+		if (unit.equals("s")) return TimeUnit.SECONDS.toMillis(amount);
+		if (unit.equals("m")) return TimeUnit.MINUTES.toMillis(amount);
+		if (unit.equals("h")) return TimeUnit.HOURS.toMillis(amount);
+		if (unit.equals("d")) return TimeUnit.DAYS.toMillis(amount);
+		throw new IllegalArgumentException("Unknown unit of duration " + duration);
+	}
+
+	static int unitIndex(String value) {
+		int i = value.length();
+		while (i > 0 && Character.isLetter(value.charAt(i - 1))) i--;
+		return i;
+	}
+
+	@Override
+	public Class<Long> getType() {
+		return Long.class;
+	}
+}
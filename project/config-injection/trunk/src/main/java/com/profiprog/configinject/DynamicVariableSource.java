@@ -5,7 +5,7 @@ import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
-public class DynamicVariableSource implements InicializableVariableSource {
+public class DynamicVariableSource implements InicializableVariableSource, UncacheableVariableSource {
 
 	private final Map<String, DynamicVariableResolver> dynamicProperties;
 	private VariableResolver variables = null;
@@ -27,4 +27,9 @@ public class DynamicVariableSource implements InicializableVariableSource {
 		return dynamic.resolve(variableName, variables);
 	}
 
+	@Override
+	public boolean isCacheable(String variableName) {
+		return !dynamicProperties.containsKey(variableName);
+	}
+
 }
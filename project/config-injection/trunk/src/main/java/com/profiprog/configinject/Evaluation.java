@@ -0,0 +1,153 @@
+package com.profiprog.configinject;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Evaluation state of one thread: stack of currently evaluated variable names used for detecting
+ * circular substitutions and scopes of evaluation (batch, dependency recording, source initialization).
+ * <p>State is {@code Object[]} consisting only of JDK types and it's reset in place, so it can stay
+ * in thread local of pooled thread without pinning class loader of this library. Pushing and popping
+ * doesn't allocate (until maximal depth grows) and {@link #contains(Object[], String)} is constant time.
+ * <p>Names are indexed in open addressing hash table. Because names are removed
+ * only in reverse order of adding, removed slot never breaks probing sequence
+ * of remaining names and can be simply cleared.
+ */
+final class Evaluation {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** {@code String[]} of evaluated names */
+	private static final int STACK = 0;
+	/** {@code int[]} of table positions of evaluated names */
+	private static final int POSITIONS = 1;
+	/** {@code String[]} hash table of evaluated names */
+	private static final int TABLE = 2;
+	/** {@code int[]} of {@link #SIZE}, {@link #UNCACHEABLE} and {@link #INITIALIZING_SOURCE} */
+	private static final int COUNTERS = 3;
+	/** {@code Set<String>} of names looked up while recording, otherwise {@code null} */
+	private static final int DEPENDENCIES = 4;
+	/** {@code ConcurrentMap<String, String>} of values resolved in current batch, otherwise {@code null} */
+	private static final int BATCH_VALUES = 5;
+
+	private static final int SIZE = 0;
+	private static final int UNCACHEABLE = 1;
+	private static final int INITIALIZING_SOURCE = 2;
+
+	private Evaluation() {}
+
+	static Object[] create() {
+		Object[] evaluation = new Object[6];
+		evaluation[STACK] = new String[INITIAL_CAPACITY];
+		evaluation[POSITIONS] = new int[INITIAL_CAPACITY];
+		evaluation[TABLE] = new String[INITIAL_CAPACITY * 2];
+		evaluation[COUNTERS] = new int[] { 0, 0, -1 };
+		return evaluation;
+	}
+
+	/**
+	 * @return {@code true} if any scope of evaluation is open
+	 */
+	static boolean isActive(Object[] evaluation) {
+		int[] counters = (int[]) evaluation[COUNTERS];
+		return counters[SIZE] > 0 || counters[INITIALIZING_SOURCE] != -1
+				|| evaluation[DEPENDENCIES] != null || evaluation[BATCH_VALUES] != null;
+	}
+
+	static int size(Object[] evaluation) {
+		return ((int[]) evaluation[COUNTERS])[SIZE];
+	}
+
+	static String get(Object[] evaluation, int index) {
+		return ((String[]) evaluation[STACK])[index];
+	}
+
+	static boolean contains(Object[] evaluation, String name) {
+		String[] table = (String[]) evaluation[TABLE];
+		int mask = table.length - 1;
+		for (int i = hash(name) & mask; table[i] != null; i = (i + 1) & mask)
+			if (table[i].equals(name)) return true;
+		return false;
+	}
+
+	static void push(Object[] evaluation, String name) {
+		int[] counters = (int[]) evaluation[COUNTERS];
+		int size = counters[SIZE];
+		if (size == ((String[]) evaluation[STACK]).length) grow(evaluation, size);
+		String[] table = (String[]) evaluation[TABLE];
+		int mask = table.length - 1;
+		int i = hash(name) & mask;
+		while (table[i] != null) i = (i + 1) & mask;
+		table[i] = name;
+		((int[]) evaluation[POSITIONS])[size] = i;
+		((String[]) evaluation[STACK])[size] = name;
+		counters[SIZE] = size + 1;
+	}
+
+	static void pop(Object[] evaluation) {
+		int[] counters = (int[]) evaluation[COUNTERS];
+		int size = --counters[SIZE];
+		((String[]) evaluation[TABLE])[((int[]) evaluation[POSITIONS])[size]] = null;
+		((String[]) evaluation[STACK])[size] = null;
+	}
+
+	private static void grow(Object[] evaluation, int size) {
+		String[] stack = new String[size * 2];
+		System.arraycopy(evaluation[STACK], 0, stack, 0, size);
+		int[] positions = new int[stack.length];
+		String[] table = new String[stack.length * 2];
+
+		int mask = table.length - 1;
+		for (int n = 0; n < size; n++) {
+			int i = hash(stack[n]) & mask;
+			while (table[i] != null) i = (i + 1) & mask;
+			table[i] = stack[n];
+			positions[n] = i;
+		}
+		evaluation[STACK] = stack;
+		evaluation[POSITIONS] = positions;
+		evaluation[TABLE] = table;
+	}
+
+	private static int hash(String name) {
+		int h = name.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	static boolean isUncacheable(Object[] evaluation) {
+		return ((int[]) evaluation[COUNTERS])[UNCACHEABLE] != 0;
+	}
+
+	static void setUncacheable(Object[] evaluation, boolean uncacheable) {
+		((int[]) evaluation[COUNTERS])[UNCACHEABLE] = uncacheable ? 1 : 0;
+	}
+
+	/**
+	 * @return index of source initialized by current thread during parallel initialization, otherwise {@code -1}
+	 */
+	static int getInitializingSource(Object[] evaluation) {
+		return ((int[]) evaluation[COUNTERS])[INITIALIZING_SOURCE];
+	}
+
+	static void setInitializingSource(Object[] evaluation, int index) {
+		((int[]) evaluation[COUNTERS])[INITIALIZING_SOURCE] = index;
+	}
+
+	@SuppressWarnings("unchecked")
+	static Set<String> getDependencies(Object[] evaluation) {
+		return (Set<String>) evaluation[DEPENDENCIES];
+	}
+
+	static void setDependencies(Object[] evaluation, Set<String> dependencies) {
+		evaluation[DEPENDENCIES] = dependencies;
+	}
+
+	@SuppressWarnings("unchecked")
+	static ConcurrentMap<String, String> getBatchValues(Object[] evaluation) {
+		return (ConcurrentMap<String, String>) evaluation[BATCH_VALUES];
+	}
+
+	static void setBatchValues(Object[] evaluation, ConcurrentMap<String, String> batchValues) {
+		evaluation[BATCH_VALUES] = batchValues;
+	}
+}
@@ -1,5 +1,6 @@
 package com.profiprog.configinject;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 import org.springframework.util.ObjectUtils;
@@ -8,15 +9,21 @@ import org.springframework.util.ReflectionUtils;
 class FieldReflectionInjector extends AbstractAnnotationInjector {
 	
 	private Field field;
-	private Object target;
+	private MethodHandle setter;
 	private Object currentValue;
 
 	public FieldReflectionInjector(Field field, Object target) {
+		this(field, InjectorHandles.setter(field), target);
+	}
+
+	/**
+	 * @param setter handle created by {@link InjectorHandles#setter(Field)}
+	 */
+	FieldReflectionInjector(Field field, MethodHandle setter, Object target) {
 		super(field.getAnnotation(AutoConfig.class));
 		assert field.isAnnotationPresent(AutoConfig.class);
 		this.field = field;
-		this.target = target;
-		field.setAccessible(true);
+		this.setter = setter.bindTo(target);
 		currentValue = ReflectionUtils.getField(field, target);
 	}
 
@@ -27,7 +34,13 @@ class FieldReflectionInjector extends AbstractAnnotationInjector {
 
 	@Override
 	public void inject(Object value) {
-		if (!ObjectUtils.nullSafeEquals(currentValue, value))
-			ReflectionUtils.setField(field, target, currentValue = value);
+		if (!ObjectUtils.nullSafeEquals(currentValue, value)) {
+			try {
+				setter.invokeExact(value);
+			} catch (Throwable e) {
+				ReflectionUtils.rethrowRuntimeException(e);
+			}
+			currentValue = value;
+		}
 	}
 }
@@ -0,0 +1,128 @@
+package com.profiprog.configinject;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches one file by {@link WatchService} registered on its directory.
+ * Listener is called from watcher thread when file was changed, burst of events
+ * is joined to one call (listener is called after debounce period without other events of the file).
+ */
+class FileWatcher implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileWatcher.class);
+
+	private final WatchService watchService;
+	private final Path fileName;
+	private final long debouncePeriod;
+	private final Runnable listener;
+	private volatile Thread thread;
+
+	private FileWatcher(WatchService watchService, Path fileName, long debouncePeriod, Runnable listener) {
+		this.watchService = watchService;
+		this.fileName = fileName;
+		this.debouncePeriod = debouncePeriod;
+		this.listener = listener;
+	}
+
+	/**
+	 * @throws IOException if directory of file can't be watched
+	 * @throws UnsupportedOperationException if file system doesn't support watching
+	 */
+	public static FileWatcher start(File file, long debouncePeriod, Runnable listener) throws IOException {
+		Path path = file.getAbsoluteFile().toPath();
+		Path directory = path.getParent();
+		WatchService watchService = directory.getFileSystem().newWatchService();
+		try {
+			directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		} catch (RuntimeException e) {
+			watchService.close();
+			throw e;
+		}
+
+		FileWatcher watcher = new FileWatcher(watchService, path.getFileName(), debouncePeriod, listener);
+		Thread thread = new Thread(watcher);
+		thread.setDaemon(true);
+		thread.setName("file-watcher-" + path.getFileName());
+		watcher.thread = thread;
+		thread.start();
+		return watcher;
+	}
+
+	public boolean isActive() {
+		return thread != null;
+	}
+
+	public void close() {
+		Thread thread = this.thread;
+		this.thread = null;
+		if (thread != null) thread.interrupt();
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			logger.warn("Unable to close watch service of " + fileName, e);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			Thread currentThread = Thread.currentThread();
+			while (thread == currentThread) {
+				WatchKey key = watchService.take();
+				boolean changed = pollEvents(key);
+				if (!changed) continue;
+
+				// only events of watched file postpone the listener, other files of directory may change often
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debouncePeriod);
+				for (long remaining; (remaining = deadline - System.nanoTime()) > 0
+						&& (key = watchService.poll(remaining, TimeUnit.NANOSECONDS)) != null;) {
+					if (pollEvents(key)) deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debouncePeriod);
+				}
+
+				try {
+					listener.run();
+				} catch (RuntimeException e) {
+					logger.error("Processing change of " + fileName + " failed", e);
+				}
+			}
+		} catch (InterruptedException ignore) {
+		} catch (ClosedWatchServiceException ignore) {
+		} catch (WatchedDirectoryInvalidException e) {
+			logger.warn("Directory of {} is no longer watched", fileName);
+		} finally {
+			thread = null;
+		}
+	}
+
+	/**
+	 * @return {@code true} if any of events relates to watched file
+	 */
+	private boolean pollEvents(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents())
+			if (event.kind() == OVERFLOW || fileName.equals(event.context())) changed = true;
+		if (!key.reset()) throw new WatchedDirectoryInvalidException();
+		return changed;
+	}
+
+	@SuppressWarnings("serial")
+	private static class WatchedDirectoryInvalidException extends RuntimeException {}
+}
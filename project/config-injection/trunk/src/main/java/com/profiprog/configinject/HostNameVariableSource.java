@@ -7,7 +7,7 @@ import org.springframework.util.Assert;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
-public class HostNameVariableSource implements VariableSource {
+public class HostNameVariableSource implements UncacheableVariableSource {
 
 	private static final Logger logger = LoggerFactory.getLogger(HostNameVariableSource.class);
 
@@ -28,6 +28,11 @@ public class HostNameVariableSource implements VariableSource {
 		return this.variableName.equals(variableName) ? resolveHostName() : null;  //To change body of implemented methods use File | Settings | File Templates.
 	}
 
+	@Override
+	public boolean isCacheable(String variableName) {
+		return !this.variableName.equals(variableName);
+	}
+
 	private String resolveHostName() {
 		try {
 			String hostName = InetAddress.getLocalHost().getHostName();
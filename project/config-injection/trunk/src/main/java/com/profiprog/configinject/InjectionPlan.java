@@ -0,0 +1,117 @@
+package com.profiprog.configinject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Precomputed {@link AutoConfig} members of class including inherited ones.
+ * Members are ordered by priority, members of superclasses are before members of subclasses.
+ * Creating injectors for bean only binds prepared method handles to bean.
+ */
+final class InjectionPlan {
+
+	private static abstract class Member {
+		final int priority;
+		final MethodHandle handle;
+
+		Member(AutoConfig preferences, MethodHandle handle) {
+			this.priority = preferences.priority();
+			this.handle = handle;
+		}
+
+		abstract ValueInjector createInjector(Object target);
+	}
+
+	private static final Comparator<Member> PRIORITYCOMPARATOR = new Comparator<Member>() {
+		@Override
+		public int compare(Member o1, Member o2) {
+			return o1.priority < o2.priority ? -1 : o1.priority == o2.priority ? 0 : 1;
+		}
+	};
+
+	private final Member[] members;
+
+	private InjectionPlan(Member[] members) {
+		this.members = members;
+	}
+
+	static InjectionPlan forClass(Class<?> type) {
+		LinkedList<Class<?>> hierarchy = new LinkedList<Class<?>>();
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) hierarchy.addFirst(c);
+
+		List<Member> members = new ArrayList<Member>();
+		Set<String> overridden = overriddenMethods(hierarchy);
+		for (Class<?> c : hierarchy) {
+			for (final Field field : c.getDeclaredFields()) {
+				if (field.isAnnotationPresent(AutoConfig.class))
+					members.add(new Member(field.getAnnotation(AutoConfig.class), InjectorHandles.setter(field)) {
+						@Override
+						ValueInjector createInjector(Object target) {
+							return new FieldReflectionInjector(field, handle, target);
+						}
+					});
+			}
+			for (final Method method : c.getDeclaredMethods()) {
+				if (method.isAnnotationPresent(AutoConfig.class) && !method.isBridge()
+						&& !overridden.contains(c.getName() + '#' + signature(method)))
+					members.add(new Member(method.getAnnotation(AutoConfig.class), InjectorHandles.invoker(method)) {
+						@Override
+						ValueInjector createInjector(Object target) {
+							return new MethodReflectionInjector(method, handle, target);
+						}
+					});
+			}
+		}
+		Collections.sort(members, PRIORITYCOMPARATOR);
+		return new InjectionPlan(members.toArray(new Member[members.size()]));
+	}
+
+	/**
+	 * Annotated method overridden by annotated method of subclass is skipped,
+	 * virtual invocation of superclass's method would inject same value twice.
+	 * @return "<i>declaring class</i>#<i>signature</i>" of skipped methods
+	 */
+	private static Set<String> overriddenMethods(List<Class<?>> hierarchy) {
+		Set<String> result = new HashSet<String>();
+		Set<String> subclassSignatures = new HashSet<String>();
+		for (int i = hierarchy.size() - 1; i >= 0; i--) {
+			Class<?> c = hierarchy.get(i);
+			List<String> annotated = new ArrayList<String>();
+			for (Method method : c.getDeclaredMethods()) {
+				if (!method.isAnnotationPresent(AutoConfig.class) || Modifier.isPrivate(method.getModifiers())) continue;
+				String signature = signature(method);
+				if (subclassSignatures.contains(signature)) result.add(c.getName() + '#' + signature);
+				annotated.add(signature);
+			}
+			subclassSignatures.addAll(annotated);
+		}
+		return result;
+	}
+
+	private static String signature(Method method) {
+		return method.getName() + Arrays.toString(method.getParameterTypes());
+	}
+
+	boolean isEmpty() {
+		return members.length == 0;
+	}
+
+	/**
+	 * @return injectors ordered by priority
+	 */
+	List<ValueInjector> createInjectors(Object target) {
+		List<ValueInjector> result = new ArrayList<ValueInjector>(members.length);
+		for (Member member : members) result.add(member.createInjector(target));
+		return result;
+	}
+}
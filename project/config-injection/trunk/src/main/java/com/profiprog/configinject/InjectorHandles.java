@@ -0,0 +1,43 @@
+package com.profiprog.configinject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Creates method handles for injecting values, all handles are of type {@code (Object target, Object value)void},
+ * so they can be bound to target and invoked without further conversions of arguments.
+ */
+final class InjectorHandles {
+
+	private static final MethodType INJECTION_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	private InjectorHandles() {}
+
+	static MethodHandle setter(Field field) {
+		field.setAccessible(true);
+		try {
+			return lookup.unreflectSetter(field).asType(INJECTION_TYPE);
+		} catch (IllegalAccessException e) {
+			// final fields can't be written by method handle, reflection is used
+			try {
+				return lookup.findVirtual(Field.class, "set", INJECTION_TYPE).bindTo(field);
+			} catch (ReflectiveOperationException ex) {
+				throw new IllegalStateException("Can't access field " + field, ex);
+			}
+		}
+	}
+
+	static MethodHandle invoker(Method method) {
+		method.setAccessible(true);
+		try {
+			return lookup.unreflect(method).asType(INJECTION_TYPE);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Can't access method " + method, e);
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package com.profiprog.configinject;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Default {@link ConfigInstrumentation} collecting counters which are exposed as MXBean
+ * (registered in platform MBean server by {@link #afterPropertiesSet()}).
+ */
+public class JmxConfigInstrumentation implements ConfigInstrumentation, JmxConfigInstrumentationMXBean, InitializingBean, DisposableBean {
+
+	public static final String DEFAULT_OBJECT_NAME = "com.profiprog.configinject:type=ConfigInstrumentation";
+
+	private static final int DEFAULT_MOST_RESOLVED_COUNT = 20;
+
+	private static final int DEFAULT_MAX_TRACKED_VARIABLES = 1000;
+
+	private static final SourceStats[] NO_SOURCES = new SourceStats[0];
+
+	private static final class SourceStats {
+		final String name;
+		final AtomicLong lookups = new AtomicLong();
+		final AtomicLong hits = new AtomicLong();
+		final AtomicLong nanos = new AtomicLong();
+
+		SourceStats(String name) {
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Stats by source index, copied on adding source.
+	 */
+	private volatile SourceStats[] sources = NO_SOURCES;
+	private final ConcurrentMap<String, AtomicLong> resolvedVariables = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicInteger trackedVariables = new AtomicInteger();
+	private final AtomicLong valueCacheHits = new AtomicLong();
+	private final AtomicLong valueCacheMisses = new AtomicLong();
+	private final AtomicLong circularSubstitutions = new AtomicLong();
+	private final AtomicLong reloads = new AtomicLong();
+	private final AtomicLong reloadNanos = new AtomicLong();
+	private volatile long lastReloadNanos;
+	private final AtomicLong reinjections = new AtomicLong();
+
+	private String objectName = DEFAULT_OBJECT_NAME;
+	private int mostResolvedCount = DEFAULT_MOST_RESOLVED_COUNT;
+	private int maxTrackedVariables = DEFAULT_MAX_TRACKED_VARIABLES;
+	private ObjectName registeredName;
+
+	public void setObjectName(String objectName) {
+		this.objectName = objectName;
+	}
+
+	/**
+	 * Count of variables reported by {@link #getMostResolvedVariables()}.
+	 * Optional, default is {@value #DEFAULT_MOST_RESOLVED_COUNT}.
+	 */
+	public void setMostResolvedCount(int mostResolvedCount) {
+		this.mostResolvedCount = mostResolvedCount;
+	}
+
+	/**
+	 * Maximal count of variable names counted for {@link #getMostResolvedVariables()},
+	 * names first resolved after the limit was reached aren't counted.
+	 * Optional, default is {@value #DEFAULT_MAX_TRACKED_VARIABLES}.
+	 */
+	public void setMaxTrackedVariables(int maxTrackedVariables) {
+		this.maxTrackedVariables = maxTrackedVariables;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(objectName);
+		server.registerMBean(this, name);
+		registeredName = name;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (registeredName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+			registeredName = null;
+		}
+	}
+
+	@Override
+	public void sourceLookup(int sourceIndex, VariableSource source, String variableName, boolean found, long nanos) {
+		SourceStats[] sources = this.sources;
+		SourceStats stats = sourceIndex < sources.length ? sources[sourceIndex] : null;
+		if (stats == null) stats = addSource(sourceIndex, source);
+		stats.lookups.incrementAndGet();
+		if (found) stats.hits.incrementAndGet();
+		stats.nanos.addAndGet(nanos);
+	}
+
+	private synchronized SourceStats addSource(int sourceIndex, VariableSource source) {
+		SourceStats[] sources = this.sources;
+		if (sourceIndex < sources.length && sources[sourceIndex] != null) return sources[sourceIndex];
+		sources = Arrays.copyOf(sources, Math.max(sources.length, sourceIndex + 1));
+		SourceStats stats = new SourceStats((sourceIndex + 1) + ". " + source.getClass().getSimpleName());
+		sources[sourceIndex] = stats;
+		this.sources = sources;
+		return stats;
+	}
+
+	@Override
+	public void variableResolved(String variableName) {
+		AtomicLong counter = resolvedVariables.get(variableName);
+		if (counter == null) {
+			if (trackedVariables.get() >= maxTrackedVariables) return;
+			counter = new AtomicLong();
+			AtomicLong concurrent = resolvedVariables.putIfAbsent(variableName, counter);
+			if (concurrent != null) counter = concurrent;
+			else trackedVariables.incrementAndGet();
+		}
+		counter.incrementAndGet();
+	}
+
+	@Override
+	public void valueCacheLookup(String variableName, boolean hit) {
+		(hit ? valueCacheHits : valueCacheMisses).incrementAndGet();
+	}
+
+	@Override
+	public void circularSubstitution(String variableName) {
+		circularSubstitutions.incrementAndGet();
+	}
+
+	@Override
+	public void fileReloaded(File file, long nanos) {
+		reloads.incrementAndGet();
+		reloadNanos.addAndGet(nanos);
+		lastReloadNanos = nanos;
+	}
+
+	@Override
+	public void valueReinjected(String expression) {
+		reinjections.incrementAndGet();
+	}
+
+	@Override
+	public Map<String, Long> getSourceLookups() {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (SourceStats stats : sources) {
+			if (stats != null) result.put(stats.name, stats.lookups.get());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getSourceHits() {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (SourceStats stats : sources) {
+			if (stats != null) result.put(stats.name, stats.hits.get());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getSourceLatencyMicros() {
+		Map<String, Double> result = new HashMap<String, Double>();
+		for (SourceStats stats : sources) {
+			if (stats == null) continue;
+			long lookups = stats.lookups.get();
+			result.put(stats.name, lookups == 0 ? 0 : stats.nanos.get() / 1000.0 / lookups);
+		}
+		return result;
+	}
+
+	@Override
+	public List<String> getMostResolvedVariables() {
+		List<Entry<String, Long>> counts = new ArrayList<Entry<String, Long>>();
+		for (Entry<String, AtomicLong> entry : resolvedVariables.entrySet())
+			counts.add(new SimpleEntry<String, Long>(entry.getKey(), entry.getValue().get()));
+		Collections.sort(counts, new Comparator<Entry<String, Long>>() {
+			@Override
+			public int compare(Entry<String, Long> o1, Entry<String, Long> o2) {
+				return o2.getValue().compareTo(o1.getValue());
+			}
+		});
+
+		List<String> result = new ArrayList<String>();
+		for (Entry<String, Long> entry : counts.subList(0, Math.min(mostResolvedCount, counts.size())))
+			result.add(entry.getKey() + "=" + entry.getValue());
+		return result;
+	}
+
+	@Override
+	public long getValueCacheHits() {
+		return valueCacheHits.get();
+	}
+
+	@Override
+	public long getValueCacheMisses() {
+		return valueCacheMisses.get();
+	}
+
+	@Override
+	public long getCircularSubstitutions() {
+		return circularSubstitutions.get();
+	}
+
+	@Override
+	public long getReloads() {
+		return reloads.get();
+	}
+
+	@Override
+	public double getLastReloadMillis() {
+		return lastReloadNanos / 1000000.0;
+	}
+
+	@Override
+	public double getTotalReloadMillis() {
+		return reloadNanos.get() / 1000000.0;
+	}
+
+	@Override
+	public long getReinjections() {
+		return reinjections.get();
+	}
+
+	@Override
+	public synchronized void reset() {
+		sources = NO_SOURCES;
+		resolvedVariables.clear();
+		trackedVariables.set(0);
+		valueCacheHits.set(0);
+		valueCacheMisses.set(0);
+		circularSubstitutions.set(0);
+		reloads.set(0);
+		reloadNanos.set(0);
+		lastReloadNanos = 0;
+		reinjections.set(0);
+	}
+}
@@ -0,0 +1,43 @@
+package com.profiprog.configinject;
+
+import java.util.List;
+import java.util.Map;
+
+public interface JmxConfigInstrumentationMXBean {
+
+	/**
+	 * @return count of lookups by source ("<i>index</i>. <i>class name</i>")
+	 */
+	Map<String, Long> getSourceLookups();
+
+	/**
+	 * @return count of lookups which found variable by source
+	 */
+	Map<String, Long> getSourceHits();
+
+	/**
+	 * @return average lookup latency in microseconds by source
+	 */
+	Map<String, Double> getSourceLatencyMicros();
+
+	/**
+	 * @return most resolved variables in descending order ("<i>name</i>=<i>count</i>")
+	 */
+	List<String> getMostResolvedVariables();
+
+	long getValueCacheHits();
+
+	long getValueCacheMisses();
+
+	long getCircularSubstitutions();
+
+	long getReloads();
+
+	double getLastReloadMillis();
+
+	double getTotalReloadMillis();
+
+	long getReinjections();
+
+	void reset();
+}
@@ -10,11 +10,15 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.util.ResourceUtils;
 import org.springframework.util.StringValueResolver;
 
 public class LiveFileHandler implements LiveFile {
+
+	private static final Logger logger = LoggerFactory.getLogger(LiveFileHandler.class);
 	
 	private static class FileReference {
 		final String fileName;
@@ -40,6 +44,9 @@ public class LiveFileHandler implements LiveFile {
 	private String templateResource;
 	protected final FileLoader loader;
 	private boolean fileNameChecking;
+	private volatile boolean watchChanges;
+	private long watchDebouncePeriod = 500;
+	private final AtomicReference<FileWatcher> watcher = new AtomicReference<FileWatcher>();
 	
 	public LiveFileHandler(FileLoader loader) {
 		this.loader = loader;
@@ -77,6 +84,41 @@ public class LiveFileHandler implements LiveFile {
 		return (int) (changesCheckPeriod / 1000L);
 	}
 
+	/**
+	 * Enables watching file by {@link java.nio.file.WatchService}, file is reloaded immediately
+	 * after change and {@link #checkChanges()} doesn't access file system.
+	 * If watching isn't supported (or file name checking is enabled) polling is used.
+	 * If watching fails (e.g. directory doesn't exist yet) changes are polled and watching
+	 * is tried again by following checks. Optional, default is {@code false}.
+	 */
+	public void setWatchChanges(boolean watchChanges) {
+		this.watchChanges = watchChanges;
+	}
+
+	/**
+	 * Period in milliseconds without other file events before watched file is reloaded.
+	 * Optional, default is 500 ms.
+	 */
+	public void setWatchDebouncePeriod(long watchDebouncePeriod) {
+		this.watchDebouncePeriod = watchDebouncePeriod;
+	}
+
+	/**
+	 * @return {@code true} if file is currently watched and polling isn't needed.
+	 */
+	public boolean isWatching() {
+		FileWatcher watcher = this.watcher.get();
+		return watcher != null && watcher.isActive();
+	}
+
+	/**
+	 * Stops watching file.
+	 */
+	public void close() {
+		FileWatcher watcher = this.watcher.getAndSet(null);
+		if (watcher != null) watcher.close();
+	}
+
 	/**
 	 * Enable auto creating missing file during initialization. Optional.
 	 */
@@ -85,16 +127,26 @@ public class LiveFileHandler implements LiveFile {
 	}
 
 	public void checkChanges() {
-        if (isQuiteTime()) return;
+        if (isWatching() || isQuiteTime()) return;
 
         FileReference reference = getFileReference();
+        if (watchChanges) {
+            // directory of missing file may be created with default file, so it's created before watching
+            if (templateResource != null && !reference.file.exists()) createDefaultFile(reference.file);
+            // watcher is registered before loading, so change made while loading isn't missed
+            startWatching(reference);
+        }
+        checkFile(reference, false);
+    }
 
+	private void checkFile(FileReference reference, boolean force) {
         long lastChanged = reference.lastChanged.get();
         long changedTime = reference.file.lastModified();
         if (changedTime == 0 && templateResource != null && !reference.file.exists())
             changedTime = createDefaultFile(reference.file);
+        if (changedTime == 0) force = false;
 
-        if (changedTime != lastChanged && reference.lastChanged.compareAndSet(lastChanged, changedTime)) {
+        if ((force || changedTime != lastChanged) && reference.lastChanged.compareAndSet(lastChanged, changedTime)) {
             try {
                 loadFile(loader, reference.file);
             } catch (IOException e) {
@@ -102,6 +154,33 @@ public class LiveFileHandler implements LiveFile {
             }
         }
     }
+
+	private void startWatching(final FileReference reference) {
+		if (fileNameChecking) {
+			logger.info("File name checking is enabled, changes of {} are polled", reference.file);
+			watchChanges = false;
+			return;
+		}
+		FileWatcher previous = watcher.get();
+		if (previous != null && previous.isActive()) return;
+		try {
+			FileWatcher watcher = FileWatcher.start(reference.file, watchDebouncePeriod, new Runnable() {
+				@Override
+				public void run() {
+					// events can come faster than modification time changes
+					checkFile(reference, true);
+				}
+			});
+			if (!this.watcher.compareAndSet(previous, watcher)) watcher.close();
+			else logger.info("Watching changes of {}", reference.file);
+		} catch (IOException e) {
+			// e.g. directory doesn't exist yet, watching is tried again by next check
+			logger.warn("Unable to watch " + reference.file + ", changes will be polled until watching succeeds", e);
+		} catch (UnsupportedOperationException e) {
+			logger.warn("Watching isn't supported for {}, changes will be polled", reference.file);
+			watchChanges = false;
+		}
+	}
 	
 	protected void loadFile(FileLoader loader, File file) throws IOException {
 		loader.loadFile(file);
@@ -0,0 +1,29 @@
+package com.profiprog.configinject;
+
+/**
+ * @see ConfigProvider#getLongProperty(String, long)
+ */
+public final class LongProperty extends PropertyHandle {
+
+	private final long defaultValue;
+	private volatile long value;
+
+	LongProperty(String expression, long defaultValue) {
+		super(expression);
+		this.defaultValue = defaultValue;
+	}
+
+	public long get() {
+		return value;
+	}
+
+	@Override
+	void update(Object value) {
+		this.value = value == null ? defaultValue : (Long) value;
+	}
+
+	@Override
+	public String toString() {
+		return getExpression() + "=" + value;
+	}
+}
@@ -5,20 +5,33 @@ import java.util.Map;
 
 import com.profiprog.configinject.util.MapParser;
 
-public class MapVariableSource implements VariableSource {
+public class MapVariableSource implements SummarizedVariableSource {
 	
 	private final Map<String, String> map;
+	
+	/**
+	 * Summary of keys, only for maps which can't be modified from outside.
+	 */
+	private final VariableNamesSummary summary;
 
 	public MapVariableSource(Map<String,String> map) {
 		this.map = map;
+		this.summary = null;
 	}
 	
 	public MapVariableSource() {
-		this(new HashMap<String, String>());
+		this.map = new HashMap<String, String>();
+		this.summary = VariableNamesSummary.of(map.keySet());
 	}
 
 	public MapVariableSource(String string) {
 		map = MapParser.parseMap(string);
+		summary = VariableNamesSummary.of(map.keySet());
+	}
+
+	@Override
+	public VariableNamesSummary getVariableNamesSummary() {
+		return summary;
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package com.profiprog.configinject;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 import org.springframework.util.ReflectionUtils;
@@ -7,18 +8,23 @@ import org.springframework.util.ReflectionUtils;
 class MethodReflectionInjector extends AbstractAnnotationInjector {
 	
 	private Method method;
-	private Object target;
+	private MethodHandle invoker;
 
 	public MethodReflectionInjector(Method method, Object target) {
+		this(method, InjectorHandles.invoker(method), target);
+	}
+
+	/**
+	 * @param invoker handle created by {@link InjectorHandles#invoker(Method)}
+	 */
+	MethodReflectionInjector(Method method, MethodHandle invoker, Object target) {
 		super(method.getAnnotation(AutoConfig.class));
 		assert method.isAnnotationPresent(AutoConfig.class);
-		assert method.getDeclaringClass() == target.getClass();
+		assert method.getDeclaringClass().isInstance(target);
 		assert method.getParameterTypes().length == 1;
 		
 		this.method = method;
-		this.target = target;
-		
-		method.setAccessible(true);
+		this.invoker = invoker.bindTo(target);
 	}
 
 	@Override
@@ -28,10 +34,10 @@ class MethodReflectionInjector extends AbstractAnnotationInjector {
 
 	@Override
 	public void inject(Object value) {
-		ReflectionUtils.invokeMethod(method, target, args(value));
-	}
-
-	private static <T> T[] args(T...values) {
-		return values;
+		try {
+			invoker.invokeExact(value);
+		} catch (Throwable e) {
+			ReflectionUtils.rethrowRuntimeException(e);
+		}
 	}
 }
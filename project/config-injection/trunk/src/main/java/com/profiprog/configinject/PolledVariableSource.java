@@ -0,0 +1,15 @@
+package com.profiprog.configinject;
+
+/**
+ * Changeable source which notices changes only when it's asked (e.g. by polling modification time of file).
+ * {@link VariableResolver} asks it before using cached value, because cache hits don't reach sources.
+ * @see VariableResolver#setValueCaching(boolean)
+ */
+public interface PolledVariableSource extends ChangeableVariableSource {
+
+	/**
+	 * Notifies change handler if source was changed. Should be cheap when it's called
+	 * again within check period or when changes are checked by other means (e.g. scheduler).
+	 */
+	void checkChanges();
+}
@@ -1,245 +1,378 @@
-package com.profiprog.configinject;
-
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-
-public class Properties implements Iterable<String> {
-	
-	private final Map<String,String> properties;
-	private final String prefix;
-	
-	public Properties(Class<?> typePattern) throws ResourceErrorException {
-		this(typePattern.getSimpleName(), typePattern.getPackage(), typePattern.getClassLoader(), "ISO-8859-1");
-	}
-	
-	public Properties(Class<?> typePattern, String charset) throws ResourceErrorException {
-		this(typePattern.getSimpleName(), typePattern.getPackage(), typePattern.getClassLoader(), charset);
-	}
-	
-	public Properties(String resourceName, Class<?> packageNeighbour) throws ResourceErrorException {
-		this(resourceName, packageNeighbour.getPackage(), packageNeighbour.getClassLoader(), "ISO-8859-1");
-	}
-	
-	public Properties(String resourceName, Class<?> packageNeighbour, String charset) throws ResourceErrorException {
-		this(resourceName, packageNeighbour.getPackage(), packageNeighbour.getClassLoader(), charset);
-	}
-	
-	public Properties(String resourceName, Package localtion, ClassLoader loader, String charset) throws ResourceErrorException {
-		this(resourceAsUrl(resourceName, localtion, loader), charset);
-	}
-	
-	public Properties(File file) {
-		this(file, System.getProperty("file.encoding"));
-	}
-
-	public Properties(File file, String charset) {
-		this(fileAsUrl(file), charset);
-	}
-
-	public Properties(URL resource, String charset) {
-		properties = Collections.synchronizedMap(new LinkedHashMap<String, String>());
-		prefix = "";
-		
-		InputStream resourceStream = null;
-		java.util.Properties aux = new java.util.Properties();
-		
-		try {
-			aux.load(new InputStreamReader(resourceStream = resource.openStream(), charset));
-		} catch(IOException e) {
-			throw new ResourceErrorException(e, resource.toString());
-		} finally {
-			try {
-			    if (resourceStream != null) resourceStream.close();
-			} catch (IOException ignore) {}
-		}
-		
-		Enumeration<?> enumerator = aux.propertyNames();
-		while(enumerator.hasMoreElements()) {
-			String key = (String) enumerator.nextElement();
-			this.properties.put(key, aux.getProperty(key));
-		}
-	}
-	
-	private static URL resourceAsUrl(String resourceName, Package localtion, ClassLoader loader) {
-		if(!resourceName.endsWith(".properties")) resourceName += ".properties";
-		resourceName = localtion == null ? resourceName :
-				localtion.getName().replace('.', '/').concat("/").concat(resourceName);
-		
-		URL resource = loader.getResource(resourceName);
-		if(resource == null)
-			throw new IllegalArgumentException("Can't find resource " + resourceName);
-		return resource;
-	}
-
-	private static URL fileAsUrl(File file) {
-		try {
-			return file.toURI().toURL();
-		} catch (MalformedURLException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	@SuppressWarnings("unchecked")
-	public Properties(java.util.Properties properties) {
-		this(Map.class.cast(properties));
-	}
-
-	public Properties(Map<String,String> properties) {
-		this.properties = new HashMap<String, String>(properties);
-		this.prefix = "";
-	}
-
-	private Properties(String prefix, Map<String,String> properties) {
-		this.properties = properties;
-		this.prefix = prefix.length() == 0 || prefix.endsWith(".") ? prefix : prefix + ".";
-	}
-	
-	public String getProperty(String key, String defaultValue) {
-		key = prefix + key;
-		return properties.containsKey(key) ? properties.get(key) : defaultValue;
-	}
-
-	public String getProperty(String key) {
-		key = prefix + key;
-		return properties.get(key);
-	}
-
-	public String setProperty(String key, String value) {
-		key = prefix + key;
-		return properties.put(key, value);
-	}
-
-	public String removeProperty(String key) {
-		key = prefix + key;
-		return properties.remove(key);
-	}
-	
-	public String getDefaultProperty(String defaultValue) {
-		String key = location();
-		return properties.containsKey(key) ? properties.get(key) : defaultValue;
-	}
-
-	public String getDefaultProperty() {
-		return properties.get(location());
-	}
-
-	public String setDefaultProperty(String value) {
-		return properties.put(location(), value);
-	}
-
-	public String removeDefaultProperty() {
-		return properties.remove(location());
-	}
-	
-	public String location() {
-		return prefix.length() == 0 ? null : prefix.substring(0, prefix.length() - 1);
-	}
-	
-	public Properties select(String...prefix) {
-		StringBuffer sb = new StringBuffer(this.prefix);
-		for(String part : prefix) sb.append(part).append('.');
-		return new Properties(sb.toString(), properties);
-	}
-
-	public Properties parent() {
-		if(prefix.length() == 0) return null;
-		int index = prefix.lastIndexOf('.', prefix.lastIndexOf('.') - 1);
-		return new Properties(index == -1 ? "" : prefix.substring(0, index), properties);
-	}
-
-	public Properties top() {
-		return prefix.length() == 0 ? this : new Properties("", properties);
-	}
-
-	public Iterator<String> iterator() {
-		return new Iterator<String>() {
-			Iterator<String> iterator = properties.keySet().iterator();
-			String next;
-
-			public boolean hasNext() {
-				do {
-					if(!iterator.hasNext()) return false;
-					next = iterator.next();
-				} while(!next.startsWith(prefix));
-				return true;
-			}
-
-			public String next() {
-				return next.substring(prefix.length());
-			}
-
-			public void remove() {
-				iterator.remove();
-			}
-		};
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		if(obj == this) return true;
-		if(obj instanceof Properties == false) return false;
-		Properties other = (Properties) obj;
-		return this.properties == other.properties
-			&& this.prefix.equals(other.prefix);
-	}
-
-	@Override
-	public int hashCode() {
-		int result = 7;
-		result = result * 31 + System.identityHashCode(properties);
-		result = result * 31 + prefix.hashCode();
-		return result;
-	}
-
-	public String reconstructPropertyDefinition() {
-		return reconstructPropertyDefinition(null);
-	}
-
-	public String reconstructPropertyDefinition(String key) {
-		key = key == null ? prefix.substring(0, prefix.length() - 1) : prefix + key;
-		return key + "=" + properties.get(key);
-	}
-
-	public String selectProperty(String...keyParts) {
-		StringBuffer key = new StringBuffer();
-		for(String part : keyParts) key.append('.').append(part);
-		return getProperty(key.toString().substring(1));
-	}
-
-	public int size() {
-		if(prefix.length() == 0) return properties.size();
-		int result = 0;
-		for(Iterator<String> i = iterator(); i.hasNext(); i.next()) result++;
-		return result;
-	}
-
-	public Map<String,String> setAll(Map<String, String> runtimeProperties) {
-		Map<String, String> result = new HashMap<String, String>(runtimeProperties.size());
-		
-		for (Entry<String, String> entry : runtimeProperties.entrySet()) {
-			String previousValue = setProperty(entry.getKey(), entry.getValue());
-			if (previousValue != null) result.put(entry.getKey(), previousValue);
-		}
-		
-		return result;
-	}
-
-	public Map<String,String> toMap() {
-		if (prefix.length() == 0) return new HashMap<String, String>(properties);
-		Map<String, String> result = new HashMap<String, String>(properties.size());
-		for(String key : this) result.put(key, getProperty(key));
-		return result;
-	}
-	
-}
+package com.profiprog.configinject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hierarchical view of properties, sub-trees are accessible by {@link #select(String...)}.
+ * <p>Besides map of values all keys are kept in sorted index, so enumerating of sub-tree
+ * ({@link #iterator()}, {@link #size()}, {@link #toMap()}) is proportional to size of sub-tree,
+ * not to count of all properties.
+ * <p>Properties loaded from resource (URL, file, class path) are copy-on-write:
+ * values are kept in immutable snapshot, so reading doesn't need any lock, and every modification
+ * ({@link #setProperty(String, String)}, {@link #setAll(Map)}, ...) atomically replaces whole snapshot.
+ * Properties created from map are modified in place.
+ */
+public class Properties implements Iterable<String> {
+
+	private static final class Snapshot {
+		final Map<String,String> values;
+		final NavigableSet<String> keys;
+		/**
+		 * Lazily created summary of keys, used only for copy-on-write snapshots.
+		 */
+		volatile VariableNamesSummary summary;
+
+		Snapshot(Map<String, String> values, NavigableSet<String> keys) {
+			this.values = values;
+			this.keys = keys;
+		}
+	}
+	
+	private final AtomicReference<Snapshot> storage;
+	private final boolean copyOnWrite;
+	private final String prefix;
+	
+	public Properties(Class<?> typePattern) throws ResourceErrorException {
+		this(typePattern.getSimpleName(), typePattern.getPackage(), typePattern.getClassLoader(), "ISO-8859-1");
+	}
+	
+	public Properties(Class<?> typePattern, String charset) throws ResourceErrorException {
+		this(typePattern.getSimpleName(), typePattern.getPackage(), typePattern.getClassLoader(), charset);
+	}
+	
+	public Properties(String resourceName, Class<?> packageNeighbour) throws ResourceErrorException {
+		this(resourceName, packageNeighbour.getPackage(), packageNeighbour.getClassLoader(), "ISO-8859-1");
+	}
+	
+	public Properties(String resourceName, Class<?> packageNeighbour, String charset) throws ResourceErrorException {
+		this(resourceName, packageNeighbour.getPackage(), packageNeighbour.getClassLoader(), charset);
+	}
+	
+	public Properties(String resourceName, Package localtion, ClassLoader loader, String charset) throws ResourceErrorException {
+		this(resourceAsUrl(resourceName, localtion, loader), charset);
+	}
+	
+	public Properties(File file) {
+		this(file, System.getProperty("file.encoding"));
+	}
+
+	/**
+	 * File is read at once and parsed directly from read content.
+	 */
+	public Properties(File file, String charset) {
+		Map<String, String> values;
+		try {
+			values = PropertiesFileReader.read(file, charset);
+		} catch (IOException e) {
+			throw new ResourceErrorException(e, fileAsUrl(file).toString());
+		}
+		storage = new AtomicReference<Snapshot>(new Snapshot(values, new TreeSet<String>(values.keySet())));
+		copyOnWrite = true;
+		prefix = "";
+	}
+
+	public Properties(URL resource, String charset) {
+		InputStream resourceStream = null;
+		java.util.Properties aux = new java.util.Properties();
+		
+		try {
+			aux.load(new InputStreamReader(resourceStream = resource.openStream(), charset));
+		} catch(IOException e) {
+			throw new ResourceErrorException(e, resource.toString());
+		} finally {
+			try {
+			    if (resourceStream != null) resourceStream.close();
+			} catch (IOException ignore) {}
+		}
+		
+		Map<String, String> values = new HashMap<String, String>(aux.size() * 4 / 3 + 1);
+		Enumeration<?> enumerator = aux.propertyNames();
+		while(enumerator.hasMoreElements()) {
+			String key = (String) enumerator.nextElement();
+			values.put(key, aux.getProperty(key));
+		}
+		storage = new AtomicReference<Snapshot>(new Snapshot(values, new TreeSet<String>(values.keySet())));
+		copyOnWrite = true;
+		prefix = "";
+	}
+	
+	private static URL resourceAsUrl(String resourceName, Package localtion, ClassLoader loader) {
+		if(!resourceName.endsWith(".properties")) resourceName += ".properties";
+		resourceName = localtion == null ? resourceName :
+				localtion.getName().replace('.', '/').concat("/").concat(resourceName);
+		
+		URL resource = loader.getResource(resourceName);
+		if(resource == null)
+			throw new IllegalArgumentException("Can't find resource " + resourceName);
+		return resource;
+	}
+
+	private static URL fileAsUrl(File file) {
+		try {
+			return file.toURI().toURL();
+		} catch (MalformedURLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public Properties(java.util.Properties properties) {
+		this(Map.class.cast(properties));
+	}
+
+	public Properties(Map<String,String> properties) {
+		this.storage = new AtomicReference<Snapshot>(new Snapshot(new HashMap<String, String>(properties),
+				new ConcurrentSkipListSet<String>(properties.keySet())));
+		this.copyOnWrite = false;
+		this.prefix = "";
+	}
+
+	private Properties(String prefix, Properties top) {
+		this.storage = top.storage;
+		this.copyOnWrite = top.copyOnWrite;
+		this.prefix = prefix.length() == 0 || prefix.endsWith(".") ? prefix : prefix + ".";
+	}
+
+	private String put(String key, String value) {
+		return write(Collections.singletonMap(key, value), false).get(key);
+	}
+
+	private String remove(String key) {
+		return write(Collections.<String, String>singletonMap(key, null), true).get(key);
+	}
+
+	/**
+	 * Puts or removes given entries, copy-on-write storage is replaced by modified copy.
+	 * @return previous non-null values of modified keys
+	 */
+	private Map<String,String> write(Map<String,String> entries, boolean remove) {
+		Map<String, String> previous = new HashMap<String, String>();
+		if (!copyOnWrite) {
+			apply(storage.get(), entries, remove, previous);
+			return previous;
+		}
+		while (true) {
+			Snapshot current = storage.get();
+			Snapshot modified = new Snapshot(new HashMap<String, String>(current.values), new TreeSet<String>(current.keys));
+			previous.clear();
+			apply(modified, entries, remove, previous);
+			if (storage.compareAndSet(current, modified)) return previous;
+		}
+	}
+
+	private static void apply(Snapshot snapshot, Map<String,String> entries, boolean remove, Map<String,String> previous) {
+		for (Entry<String, String> entry : entries.entrySet()) {
+			String key = entry.getKey();
+			String previousValue = remove ? snapshot.values.remove(key) : snapshot.values.put(key, entry.getValue());
+			if (key != null) {
+				if (remove) snapshot.keys.remove(key);
+				else snapshot.keys.add(key);
+			}
+			if (previousValue != null) previous.put(key, previousValue);
+		}
+	}
+
+	/**
+	 * @return sorted keys (including prefix) of this sub-tree
+	 */
+	private NavigableSet<String> subTree(Snapshot snapshot) {
+		if (prefix.length() == 0) return snapshot.keys;
+		return snapshot.keys.subSet(prefix, true, followingPrefix(prefix), false);
+	}
+
+	/**
+	 * @return the lowest string greater than all strings starting with given prefix
+	 */
+	private static String followingPrefix(String prefix) {
+		int last = prefix.length() - 1;
+		return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+	}
+	
+	/**
+	 * Summary is available only for copy-on-write properties (loaded from resource) and whole tree.
+	 * @return summary of keys or {@code null}
+	 */
+	public VariableNamesSummary getNamesSummary() {
+		if (!copyOnWrite || prefix.length() != 0) return null;
+		Snapshot snapshot = storage.get();
+		VariableNamesSummary summary = snapshot.summary;
+		if (summary == null) snapshot.summary = summary = VariableNamesSummary.of(snapshot.keys);
+		return summary;
+	}
+
+	public String getProperty(String key, String defaultValue) {
+		key = prefix + key;
+		Map<String, String> values = storage.get().values;
+		return values.containsKey(key) ? values.get(key) : defaultValue;
+	}
+
+	public String getProperty(String key) {
+		key = prefix + key;
+		return storage.get().values.get(key);
+	}
+
+	public String setProperty(String key, String value) {
+		key = prefix + key;
+		return put(key, value);
+	}
+
+	public String removeProperty(String key) {
+		key = prefix + key;
+		return remove(key);
+	}
+	
+	public String getDefaultProperty(String defaultValue) {
+		String key = location();
+		Map<String, String> values = storage.get().values;
+		return values.containsKey(key) ? values.get(key) : defaultValue;
+	}
+
+	public String getDefaultProperty() {
+		return storage.get().values.get(location());
+	}
+
+	public String setDefaultProperty(String value) {
+		return put(location(), value);
+	}
+
+	public String removeDefaultProperty() {
+		return remove(location());
+	}
+	
+	public String location() {
+		return prefix.length() == 0 ? null : prefix.substring(0, prefix.length() - 1);
+	}
+	
+	public Properties select(String...prefix) {
+		StringBuffer sb = new StringBuffer(this.prefix);
+		for(String part : prefix) sb.append(part).append('.');
+		return new Properties(sb.toString(), this);
+	}
+
+	public Properties parent() {
+		if(prefix.length() == 0) return null;
+		int index = prefix.lastIndexOf('.', prefix.lastIndexOf('.') - 1);
+		return new Properties(index == -1 ? "" : prefix.substring(0, index), this);
+	}
+
+	public Properties top() {
+		return prefix.length() == 0 ? this : new Properties("", this);
+	}
+
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			Iterator<String> iterator = subTree(storage.get()).iterator();
+			String current;
+
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			public String next() {
+				current = iterator.next();
+				return current.substring(prefix.length());
+			}
+
+			public void remove() {
+				if (current == null) throw new IllegalStateException();
+				Properties.this.remove(current);
+				current = null;
+			}
+		};
+	}
+
+	/**
+	 * Direct children are properties which don't contain '.' in key (relative to this sub-tree).
+	 * Nested sub-trees are skipped without iterating, so complexity is proportional
+	 * to count of direct children and nested sub-trees.
+	 * @return map of direct children values, keys are relative to this sub-tree.
+	 */
+	public Map<String,String> toDirectChildrenMap() {
+		Snapshot snapshot = storage.get();
+		Map<String, String> result = new HashMap<String, String>();
+		String key = snapshot.keys.ceiling(prefix);
+		while (key != null && key.startsWith(prefix)) {
+			int dot = key.indexOf('.', prefix.length());
+			if (dot == -1) {
+				String value = snapshot.values.get(key);
+				if (value != null) result.put(key.substring(prefix.length()), value);
+				key = snapshot.keys.higher(key);
+			}
+			else key = snapshot.keys.ceiling(followingPrefix(key.substring(0, dot + 1)));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(obj == this) return true;
+		if(obj instanceof Properties == false) return false;
+		Properties other = (Properties) obj;
+		return this.storage == other.storage
+			&& this.prefix.equals(other.prefix);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 7;
+		result = result * 31 + System.identityHashCode(storage);
+		result = result * 31 + prefix.hashCode();
+		return result;
+	}
+
+	public String reconstructPropertyDefinition() {
+		return reconstructPropertyDefinition(null);
+	}
+
+	public String reconstructPropertyDefinition(String key) {
+		key = key == null ? prefix.substring(0, prefix.length() - 1) : prefix + key;
+		return key + "=" + storage.get().values.get(key);
+	}
+
+	public String selectProperty(String...keyParts) {
+		StringBuffer key = new StringBuffer();
+		for(String part : keyParts) key.append('.').append(part);
+		return getProperty(key.toString().substring(1));
+	}
+
+	public int size() {
+		Snapshot snapshot = storage.get();
+		if(prefix.length() == 0) return snapshot.values.size();
+		return subTree(snapshot).size();
+	}
+
+	public Map<String,String> setAll(Map<String, String> runtimeProperties) {
+		Map<String, String> entries = new HashMap<String, String>(runtimeProperties.size() * 4 / 3 + 1);
+		for (Entry<String, String> entry : runtimeProperties.entrySet())
+			entries.put(prefix + entry.getKey(), entry.getValue());
+
+		Map<String, String> result = new HashMap<String, String>(runtimeProperties.size());
+		for (Entry<String, String> entry : write(entries, false).entrySet())
+			result.put(entry.getKey().substring(prefix.length()), entry.getValue());
+		return result;
+	}
+
+	public Map<String,String> toMap() {
+		Snapshot snapshot = storage.get();
+		if (prefix.length() == 0) return new HashMap<String, String>(snapshot.values);
+		Map<String, String> result = new HashMap<String, String>();
+		for(String key : subTree(snapshot)) result.put(key.substring(prefix.length()), snapshot.values.get(key));
+		return result;
+	}
+	
+}
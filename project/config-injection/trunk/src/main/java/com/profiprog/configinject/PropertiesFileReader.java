@@ -0,0 +1,255 @@
+package com.profiprog.configinject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads properties file (format of {@link java.util.Properties#load(java.io.Reader)})
+ * into one byte buffer and parses it directly into map of values in one pass.
+ * <p>ISO-8859-1 content is parsed straight from read bytes, other charsets are decoded
+ * once into char buffer. Repeated values are shared by one {@link String} instance.
+ * <p>File isn't memory mapped, because mapped file can't be overwritten on some platforms (Windows)
+ * until the mapping is garbage collected, and live files are overwritten by editing.
+ */
+class PropertiesFileReader {
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	private final CharSequence content;
+	private final int length;
+	private final Map<String, String> pool = new HashMap<String, String>();
+	private char[] buffer = new char[256];
+	private int position;
+
+	private PropertiesFileReader(CharSequence content) {
+		this.content = content;
+		this.length = content.length();
+	}
+
+	public static Map<String, String> read(File file, String charset) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new IOException("File " + file + " is too large");
+			ByteBuffer bytes = ByteBuffer.allocate((int) size);
+			// file may be shortened meanwhile
+			while (bytes.hasRemaining() && channel.read(bytes) != -1);
+			bytes.flip();
+			return new PropertiesFileReader(decode(bytes, Charset.forName(charset))).read();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static CharSequence decode(ByteBuffer bytes, Charset charset) throws IOException {
+		if (ISO_8859_1.equals(charset)) return new Latin1Sequence(bytes);
+		// malformed bytes are replaced as by InputStreamReader, so one bad byte doesn't break every reload
+		return charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE)
+				.decode(bytes);
+	}
+
+	private Map<String, String> read() {
+		Map<String, String> values = new HashMap<String, String>();
+		while (nextLogicalLine()) {
+			String key = readKey();
+			skipSeparator();
+			values.put(intern(key), intern(readValue()));
+		}
+		return values;
+	}
+
+	/**
+	 * Skips blank lines and comments.
+	 * @return {@code false} at the end of content
+	 */
+	private boolean nextLogicalLine() {
+		while (position < length) {
+			skipWhitespace();
+			if (position == length) return false;
+			char c = content.charAt(position);
+			if (c == '\n' || c == '\r') position++;
+			else if (c == '#' || c == '!') skipLine();
+			else if (c == '\\' && position + 2 < length && isLineTerminator(content.charAt(position + 1))) {
+				// continuation which appended nothing, following line may be still comment or blank
+				// (at the end of content it's empty line like in java.util.Properties)
+				position++;
+				continueLine();
+			}
+			else return true;
+		}
+		return false;
+	}
+
+	private void skipLine() {
+		while (position < length) {
+			char c = content.charAt(position);
+			if (c == '\n' || c == '\r') return;
+			position++;
+		}
+	}
+
+	private void skipWhitespace() {
+		while (position < length) {
+			char c = content.charAt(position);
+			if (c != ' ' && c != '\t' && c != '\f') return;
+			position++;
+		}
+	}
+
+	/**
+	 * Skips line terminator and leading whitespace of following line after line ending backslash.
+	 */
+	private void continueLine() {
+		if (position < length && content.charAt(position) == '\r') position++;
+		if (position < length && content.charAt(position) == '\n') position++;
+		skipWhitespace();
+	}
+
+	private String readKey() {
+		int size = 0;
+		while (position < length) {
+			char c = content.charAt(position);
+			if (c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r') break;
+			position++;
+			if (c == '\\') {
+				if (position == length) break;
+				if (isLineTerminator(content.charAt(position))) {
+					continueLine();
+					continue;
+				}
+				c = unescape();
+			}
+			size = append(size, c);
+		}
+		return new String(buffer, 0, size);
+	}
+
+	private void skipSeparator() {
+		skipSeparatorWhitespace();
+		if (position < length) {
+			char c = content.charAt(position);
+			if (c == '=' || c == ':') {
+				position++;
+				skipSeparatorWhitespace();
+			}
+		}
+	}
+
+	/**
+	 * Skips whitespace including line continuations.
+	 */
+	private void skipSeparatorWhitespace() {
+		skipWhitespace();
+		while (position + 1 < length && content.charAt(position) == '\\' && isLineTerminator(content.charAt(position + 1))) {
+			position++;
+			continueLine();
+		}
+	}
+
+	private String readValue() {
+		int size = 0;
+		while (position < length) {
+			char c = content.charAt(position);
+			if (isLineTerminator(c)) break;
+			position++;
+			if (c == '\\') {
+				if (position == length) break;
+				if (isLineTerminator(content.charAt(position))) {
+					continueLine();
+					continue;
+				}
+				c = unescape();
+			}
+			size = append(size, c);
+		}
+		return new String(buffer, 0, size);
+	}
+
+	/**
+	 * Converts escaped character following backslash.
+	 */
+	private char unescape() {
+		char c = content.charAt(position++);
+		switch (c) {
+			case 't': return '\t';
+			case 'r': return '\r';
+			case 'n': return '\n';
+			case 'f': return '\f';
+			case 'u':
+				if (position + 4 > length) throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+				int value = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(content.charAt(position++), 16);
+					if (digit == -1) throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+					value = (value << 4) + digit;
+				}
+				return (char) value;
+			default: return c;
+		}
+	}
+
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r';
+	}
+
+	private int append(int size, char c) {
+		if (size == buffer.length) {
+			char[] enlarged = new char[size * 2];
+			System.arraycopy(buffer, 0, enlarged, 0, size);
+			buffer = enlarged;
+		}
+		buffer[size] = c;
+		return size + 1;
+	}
+
+	private String intern(String string) {
+		String pooled = pool.get(string);
+		if (pooled != null) return pooled;
+		pool.put(string, string);
+		return string;
+	}
+
+	/**
+	 * ISO-8859-1 bytes viewed as characters without decoding.
+	 */
+	private static class Latin1Sequence implements CharSequence {
+
+		private final ByteBuffer bytes;
+
+		Latin1Sequence(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int length() {
+			return bytes.limit();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (bytes.get(index) & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			ByteBuffer slice = bytes.duplicate();
+			slice.position(start).limit(end);
+			return new Latin1Sequence(slice.slice());
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder(this).toString();
+		}
+	}
+}
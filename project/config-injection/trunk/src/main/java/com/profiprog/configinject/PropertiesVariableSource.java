@@ -5,7 +5,7 @@ import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
 
-public class PropertiesVariableSource implements VariableSource, InitializingBean {
+public class PropertiesVariableSource implements SummarizedVariableSource, InitializingBean {
     private Properties properties;
     private String charset = "ISO-8859-1";
     private String source;
@@ -23,6 +23,11 @@ public class PropertiesVariableSource implements VariableSource, InitializingBea
         return properties.getProperty(variableName);
     }
 
+    @Override
+    public VariableNamesSummary getVariableNamesSummary() {
+        return properties == null ? null : properties.getNamesSummary();
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         properties = new Properties(new ClassPathResource(source).getURL(), charset);
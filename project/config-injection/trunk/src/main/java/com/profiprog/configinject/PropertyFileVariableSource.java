@@ -2,20 +2,20 @@ package com.profiprog.configinject;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.Trigger;
 import org.springframework.scheduling.support.PeriodicTrigger;
 
 import com.profiprog.configinject.LiveFile.FileLoader;
 
-public class PropertyFileVariableSource implements InicializableVariableSource, ChangeableVariableSource, FileLoader {
+public class PropertyFileVariableSource implements InicializableVariableSource, PolledVariableSource, SummarizedVariableSource, FileLoader, DisposableBean {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PropertyFileVariableSource.class);
 	
@@ -25,11 +25,40 @@ public class PropertyFileVariableSource implements InicializableVariableSource,
 	private VariableSourceChangeHandler changeHandler;
 	private TaskScheduler taskScheduler;
 	private Trigger trigger;
+	private volatile ConfigInstrumentation instrumentation;
 	
 	public void setFileNameChecking(boolean fileNameChecking) {
 		fileHandler.setFileNameChecking(fileNameChecking);
 	}
 
+	/**
+	 * Enables watching file by {@link java.nio.file.WatchService}, file is reloaded immediately
+	 * after change, variable lookups don't access file system and no polling task is scheduled.
+	 * If watching isn't supported (or file name checking is enabled) polling is used.
+	 * If watching fails (e.g. directory doesn't exist yet) changes are polled and watching
+	 * is tried again by following checks. Optional, default is {@code false}.
+	 * @see LiveFileHandler#setWatchChanges(boolean)
+	 */
+	public void setWatchChanges(boolean watchChanges) {
+		fileHandler.setWatchChanges(watchChanges);
+	}
+
+	/**
+	 * Period in milliseconds without other events of watched file before it's reloaded.
+	 * Optional, default is 500 ms.
+	 * @see #setWatchChanges(boolean)
+	 */
+	public void setWatchDebouncePeriod(long milliseconds) {
+		fileHandler.setWatchDebouncePeriod(milliseconds);
+	}
+
+	/**
+	 * Enables reporting of reloads. Optional, default is disabled.
+	 */
+	public void setInstrumentation(ConfigInstrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
 	public void setTrigger(Trigger trigger) {
 		this.trigger = trigger;
 	}
@@ -51,6 +80,12 @@ public class PropertyFileVariableSource implements InicializableVariableSource,
 		return getProperties().getProperty(variableName);
 	}
 	
+	@Override
+	public VariableNamesSummary getVariableNamesSummary() {
+		Properties properties = getProperties();
+		return properties == null ? null : properties.getNamesSummary();
+	}
+	
 	public void setCheckPeriodInSeconds(int seconds) {
 		fileHandler.setChangesCheckPeriod(seconds);
 	}
@@ -58,16 +93,32 @@ public class PropertyFileVariableSource implements InicializableVariableSource,
 	@Override
 	public void loadFile(File file) throws IOException {
 		logger.info("Loading configuration from {}", file);
-		properties.set(new Properties(file));
-		if (changeHandler != null)
-			changeHandler.notifyVariableSourceChange(this);
+		long start = instrumentation != null ? System.nanoTime() : 0;
+		Properties loaded = new Properties(file);
+		Properties previous = properties.getAndSet(loaded);
+		try {
+			notifyChanges(file, previous, loaded);
+		} finally {
+			if (instrumentation != null) instrumentation.fileReloaded(file, System.nanoTime() - start);
+		}
+	}
+
+	private void notifyChanges(File file, Properties previous, Properties loaded) {
+		if (changeHandler == null) return;
+
+		VariableChanges changes = VariableChanges.diff(previous == null ? null : previous.toMap(), loaded.toMap());
+		if (previous != null && changes.isEmpty()) {
+			logger.debug("No property changed in {}", file);
+			return;
+		}
+		VariableChanges.notifyChange(changeHandler, this, changes);
 	}
 
 	@Override
 	public void initSource(VariableResolver variables) throws IOException {
 		fileHandler.setVariables(variables);
 		fileHandler.checkChanges();
-		if (taskScheduler != null) {
+		if (taskScheduler != null && !fileHandler.isWatching()) {
 			if (trigger == null) trigger = createDefaultTrigger();
 			taskScheduler.schedule(createCheckChangesTask(), trigger);
 		}
@@ -89,20 +140,26 @@ public class PropertyFileVariableSource implements InicializableVariableSource,
 	}
 
 	public Properties getProperties() {
-		if (taskScheduler == null) fileHandler.checkChanges();
+		checkChanges();
 		return properties.get();
 	}
+
+	/**
+	 * Checks changes of file unless they are checked by scheduler.
+	 * @see #setCheckPeriodInSeconds(int)
+	 */
+	@Override
+	public void checkChanges() {
+		if (taskScheduler == null) fileHandler.checkChanges();
+	}
+
+	@Override
+	public void destroy() {
+		fileHandler.close();
+	}
 	
 	public Map<String,String> extractDirectChildrenProperties(String prefix) {
-		Map<String,String> result = new HashMap<String, String>();
-		
-		Properties subProperties = properties.get().select(prefix);
-		for (String child : subProperties) {
-			if (child.indexOf('.') == -1) {
-				result.put(child, subProperties.getProperty(child));
-			}
-		}
-		return result;
+		return properties.get().select(prefix).toDirectChildrenMap();
 	}
 
 	@Override
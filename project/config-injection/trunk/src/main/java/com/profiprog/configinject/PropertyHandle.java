@@ -0,0 +1,25 @@
+package com.profiprog.configinject;
+
+/**
+ * Handle of converted property obtained from {@link ConfigProvider}.
+ * Converted value is kept by handle and it is converted again only when variables
+ * used by expression are changed, so reading value is only volatile read.
+ * <p>Handle is updated as long as {@link ConfigProvider} lives.
+ */
+public abstract class PropertyHandle {
+
+	private final String expression;
+
+	PropertyHandle(String expression) {
+		this.expression = expression;
+	}
+
+	public String getExpression() {
+		return expression;
+	}
+
+	/**
+	 * @param value converted value, {@code null} if property is missing
+	 */
+	abstract void update(Object value);
+}
@@ -1,10 +1,15 @@
 package com.profiprog.configinject;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.servlet.ServletContext;
 
@@ -19,9 +24,13 @@ import javax.servlet.ServletContext;
  * <li><code>${<b>{@value #CONTEXT_PREFIX}</b>.<b>{@value #MIME_TYPE}</b>.<i>&lt;fileName&gt;</i>}</code> - returns <code>ServletContext.getMimeType(<i>&lt;fileName&gt;</i>)</code>
  * </ul>
  * <p>Any emphases name (in variable) can be replaced by custom name. See {@link #setMapping(Map)} method to know how to do it.
+ * <p>Mapping is compiled into dispatch tables, so names which don't belong to this source are rejected
+ * without allocation. Standard values and init parameters are cached, because they can't change during life of context.
+ * Init parameters are all read on first use, so the cache doesn't grow with arbitrary variable names.
+ * Attributes can change any time and mime types are looked up for arbitrary file names, so they are not cached.
  * @see ServletContext
  */
-public class ServletContextVariableSource implements VariableSource {
+public class ServletContextVariableSource implements UncacheableVariableSource {
 
 	public static final String MIME_TYPE = "mimeType";
 
@@ -39,13 +48,93 @@ public class ServletContextVariableSource implements VariableSource {
 
 	public static final String CONTEXT_ROOT = "contextRoot";
 	
-	private static final Set<String> knownParams = new HashSet<String>(Arrays.asList(
-			MIME_TYPE, INIT_PARAM, ATTRIBUTE, CONTEXT_PREFIX, SERVLET_CONTEXT_NAME, SERVER_INFO, CONTEXT_PATH, CONTEXT_ROOT)); 
+	private enum Param { CONTEXT_ROOT, CONTEXT_PATH, SERVER_INFO, SERVLET_CONTEXT_NAME, ATTRIBUTE, INIT_PARAM, MIME_TYPE, NONE }
+
+	private static final Map<String, Param> standardNames = new HashMap<String, Param>();
+	static {
+		standardNames.put(CONTEXT_ROOT, Param.CONTEXT_ROOT);
+		standardNames.put(CONTEXT_PATH, Param.CONTEXT_PATH);
+		standardNames.put(SERVER_INFO, Param.SERVER_INFO);
+		standardNames.put(SERVLET_CONTEXT_NAME, Param.SERVLET_CONTEXT_NAME);
+		standardNames.put(ATTRIBUTE, Param.ATTRIBUTE);
+		standardNames.put(INIT_PARAM, Param.INIT_PARAM);
+		standardNames.put(MIME_TYPE, Param.MIME_TYPE);
+	}
+
+	private static final String MISSING = new String("<missing>");
+
+	/**
+	 * Mapping compiled into lookup tables.
+	 */
+	private static final class Dispatch {
+		/**
+		 * Whole variable names (without '.'), {@link Param#NONE} for mapped names without value.
+		 */
+		final Map<String, Param> names = new HashMap<String, Param>();
+		/**
+		 * Names mapped to {@value ServletContextVariableSource#CONTEXT_PREFIX} followed by '.'
+		 */
+		final String[] contextPrefixes;
+		/**
+		 * Names of selectors followed by '.' and corresponding parameters
+		 */
+		final String[] selectors;
+		final Param[] selectorParams;
+
+		Dispatch(Map<String, String> mapping) {
+			Set<String> names = new LinkedHashSet<String>(Arrays.asList(CONTEXT_PREFIX,
+					CONTEXT_ROOT, CONTEXT_PATH, SERVER_INFO, SERVLET_CONTEXT_NAME, ATTRIBUTE, INIT_PARAM, MIME_TYPE));
+			names.addAll(mapping.keySet());
+
+			List<String> contextPrefixes = new ArrayList<String>();
+			List<String> selectors = new ArrayList<String>();
+			List<Param> selectorParams = new ArrayList<Param>();
+			for (String name : names) {
+				String standardName = mapping.containsKey(name) ? mapping.get(name) : name;
+				Param param = standardNames.get(standardName);
+				if (param == Param.ATTRIBUTE || param == Param.INIT_PARAM || param == Param.MIME_TYPE) {
+					selectors.add(name + ".");
+					selectorParams.add(param);
+					param = Param.NONE;
+				}
+				if (CONTEXT_PREFIX.equals(standardName)) contextPrefixes.add(name + ".");
+				this.names.put(name, param != null ? param : Param.NONE);
+			}
+			this.contextPrefixes = contextPrefixes.toArray(new String[contextPrefixes.size()]);
+			this.selectors = selectors.toArray(new String[selectors.size()]);
+			this.selectorParams = selectorParams.toArray(new Param[selectorParams.size()]);
+		}
+
+		/**
+		 * @return index of selector following context prefix or {@code -1}
+		 */
+		int selectorStart(String variableName) {
+			for (String prefix : contextPrefixes)
+				if (variableName.startsWith(prefix)) return prefix.length();
+			return -1;
+		}
+
+		/**
+		 * @return index into {@link #selectors} or {@code -1}
+		 */
+		int selector(String variableName, int selectorStart) {
+			for (int i = 0; i < selectors.length; i++)
+				if (variableName.startsWith(selectors[i], selectorStart)) return i;
+			return -1;
+		}
+	}
+
+	private volatile Dispatch dispatch = new Dispatch(Collections.<String, String>emptyMap());
+
+	/**
+	 * Constant values indexed by {@link Param#ordinal()}, {@link #MISSING} for missing values.
+	 */
+	private final AtomicReferenceArray<String> cachedValues = new AtomicReferenceArray<String>(Param.values().length);
 
 	/**
-	 * Mapping custom variable names to standard.
+	 * Init parameters by name, loaded on first use.
 	 */
-	private Map<String,String> mapping = Collections.emptyMap();
+	private volatile Map<String, String> initParams;
 	
 	private final ServletContext servletContext;
 	
@@ -70,45 +159,76 @@ public class ServletContextVariableSource implements VariableSource {
 	 * @param mapping - map custom variable names to standard
 	 */
 	public void setMapping(Map<String, String> mapping) {
-		this.mapping = mapping;
+		this.dispatch = new Dispatch(mapping);
 	}
 
 	@Override
 	public String getRawValue(String variableName) throws NullPointerException {
-		String prefix = null;
-		
-		if (mapping.containsKey(variableName)) variableName = mapping.get(variableName);
-		else prefix = extractPrefix(variableName);
-		
-		if (!knownParams.contains(prefix == null ? variableName : prefix)) return null;
-		
-		if (prefix == null) {
-			if (CONTEXT_ROOT.equals(variableName)) return servletContext.getRealPath("");
-			if (CONTEXT_PATH.equals(variableName)) return servletContext.getContextPath();
-			if (SERVER_INFO.equals(variableName)) return servletContext.getServerInfo();
-			if (SERVLET_CONTEXT_NAME.equals(variableName)) return servletContext.getServletContextName();
+		Dispatch dispatch = this.dispatch;
+		Param param = dispatch.names.get(variableName);
+		if (param == Param.NONE) return null;
+		if (param == null) {
+			int selectorStart = dispatch.selectorStart(variableName);
+			if (selectorStart < 0) return null;
+			int selector = dispatch.selector(variableName, selectorStart);
+			if (selector < 0) {
+				if (variableName.indexOf('.', selectorStart) < 0)
+					throw new IllegalArgumentException(variableName.substring(selectorStart));
+				return null;
+			}
+			String parameterName = variableName.substring(selectorStart + dispatch.selectors[selector].length());
+			switch (dispatch.selectorParams[selector]) {
+				case ATTRIBUTE: return String.valueOf(servletContext.getAttribute(parameterName));
+				case INIT_PARAM: return initParams().get(parameterName);
+				default: return servletContext.getMimeType(parameterName);
+			}
 		}
-		else if (CONTEXT_PREFIX.equals(prefix)) {
-			variableName = removePrefix(variableName);
-			String selector = extractPrefix(variableName);
-			variableName = removePrefix(variableName);
-			if (ATTRIBUTE.equals(selector)) return String.valueOf(servletContext.getAttribute(variableName));
-			if (INIT_PARAM.equals(selector)) return servletContext.getInitParameter(variableName);
-			if (MIME_TYPE.equals(selector)) return servletContext.getMimeType(variableName);
+
+		String value = cachedValues.get(param.ordinal());
+		if (value == null) {
+			value = evaluate(param);
+			cachedValues.set(param.ordinal(), value != null ? value : MISSING);
+		}
+		return value == MISSING ? null : value;
+	}
+
+	private String evaluate(Param param) {
+		switch (param) {
+			case CONTEXT_ROOT: return servletContext.getRealPath("");
+			case CONTEXT_PATH: return servletContext.getContextPath();
+			case SERVER_INFO: return servletContext.getServerInfo();
+			case SERVLET_CONTEXT_NAME: return servletContext.getServletContextName();
+			default: return null;
 		}
-		return null;
 	}
 
-	private String removePrefix(String variableName) {
-		int index = variableName.indexOf(".");
-		if (index < 0) throw new IllegalArgumentException(variableName);
-		return variableName.substring(index + 1);
+	/**
+	 * @return init parameters by name, read from servlet context on first use
+	 */
+	private Map<String, String> initParams() {
+		Map<String, String> initParams = this.initParams;
+		if (initParams == null) {
+			initParams = new HashMap<String, String>();
+			Enumeration<?> names = servletContext.getInitParameterNames();
+			while (names != null && names.hasMoreElements()) {
+				String name = (String) names.nextElement();
+				initParams.put(name, servletContext.getInitParameter(name));
+			}
+			this.initParams = initParams;
+		}
+		return initParams;
 	}
 
-	private String extractPrefix(String variableName) {
-		int index = variableName.indexOf(".");
-		if (index < 0) return null;
-		String prefix = variableName.substring(0, index);
-		return mapping.containsKey(prefix) ? mapping.get(prefix) : prefix;
+	/**
+	 * Attributes of servlet context can be changed any time, other values are constant.
+	 */
+	@Override
+	public boolean isCacheable(String variableName) {
+		Dispatch dispatch = this.dispatch;
+		if (dispatch.names.containsKey(variableName)) return true;
+		int selectorStart = dispatch.selectorStart(variableName);
+		if (selectorStart < 0) return true;
+		int selector = dispatch.selector(variableName, selectorStart);
+		return selector < 0 || dispatch.selectorParams[selector] != Param.ATTRIBUTE;
 	}
 }
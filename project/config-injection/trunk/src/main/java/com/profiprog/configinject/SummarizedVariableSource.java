@@ -0,0 +1,14 @@
+package com.profiprog.configinject;
+
+/**
+ * Source which can summarize names of its variables, so {@link VariableResolver}
+ * doesn't ask it for variables which it surely doesn't contain.
+ */
+public interface SummarizedVariableSource extends VariableSource {
+
+	/**
+	 * Summary has to be replaced whenever variables are added.
+	 * @return summary of current variable names or {@code null} if it isn't known
+	 */
+	VariableNamesSummary getVariableNamesSummary();
+}
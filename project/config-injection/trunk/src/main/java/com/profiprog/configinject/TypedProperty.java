@@ -0,0 +1,35 @@
+package com.profiprog.configinject;
+
+/**
+ * @see ConfigProvider#getPropertyHandle(String, Class, Object)
+ */
+public final class TypedProperty<T> extends PropertyHandle {
+
+	private final Class<T> type;
+	private final T defaultValue;
+	private volatile T value;
+
+	TypedProperty(String expression, Class<T> type, T defaultValue) {
+		super(expression);
+		this.type = type;
+		this.defaultValue = defaultValue;
+	}
+
+	public T get() {
+		return value;
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	@Override
+	void update(Object value) {
+		this.value = value == null ? defaultValue : type.cast(value);
+	}
+
+	@Override
+	public String toString() {
+		return getExpression() + "=" + value;
+	}
+}
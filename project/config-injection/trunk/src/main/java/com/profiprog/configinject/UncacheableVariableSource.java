@@ -0,0 +1,16 @@
+package com.profiprog.configinject;
+
+/**
+ * Variable source which can provide different values for same variable in time
+ * without notifying change (e.g. values depending on current request).
+ * Such values are never cached by {@link VariableResolver}.
+ * @see VariableResolver#setValueCaching(boolean)
+ */
+public interface UncacheableVariableSource extends VariableSource {
+
+	/**
+	 * @param variableName must not be {@code null}
+	 * @return {@code false} if value (or absence) of variable can change between calls.
+	 */
+	boolean isCacheable(String variableName);
+}
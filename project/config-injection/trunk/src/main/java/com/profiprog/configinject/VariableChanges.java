@@ -0,0 +1,92 @@
+package com.profiprog.configinject;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.profiprog.configinject.ChangeableVariableSource.VariableSourceChangeHandler;
+import com.profiprog.configinject.ChangeableVariableSource.VariablesChangeHandler;
+
+/**
+ * Key-level difference between two states of {@link ChangeableVariableSource}.
+ * <p>Contains raw variable names of changed source only, variables which reference
+ * changed variables (e.g. <code>a=${b}</code>) aren't listed.
+ */
+public final class VariableChanges {
+
+	private final Set<String> added;
+	private final Set<String> removed;
+	private final Set<String> changed;
+
+	public VariableChanges(Set<String> added, Set<String> removed, Set<String> changed) {
+		this.added = Collections.unmodifiableSet(added);
+		this.removed = Collections.unmodifiableSet(removed);
+		this.changed = Collections.unmodifiableSet(changed);
+	}
+
+	/**
+	 * Compares two states of variables, {@code null} is considered as empty state.
+	 */
+	public static VariableChanges diff(Map<String, String> oldValues, Map<String, String> newValues) {
+		if (oldValues == null) oldValues = Collections.emptyMap();
+		if (newValues == null) newValues = Collections.emptyMap();
+
+		Set<String> added = new HashSet<String>();
+		Set<String> changed = new HashSet<String>();
+		for (Entry<String, String> entry : newValues.entrySet()) {
+			String oldValue = oldValues.get(entry.getKey());
+			if (oldValue == null) {
+				if (!oldValues.containsKey(entry.getKey())) added.add(entry.getKey());
+				else if (entry.getValue() != null) changed.add(entry.getKey());
+			}
+			else if (!oldValue.equals(entry.getValue())) changed.add(entry.getKey());
+		}
+
+		Set<String> removed = new HashSet<String>();
+		if (oldValues.size() + added.size() != newValues.size())
+			for (String key : oldValues.keySet())
+				if (!newValues.containsKey(key)) removed.add(key);
+
+		return new VariableChanges(added, removed, changed);
+	}
+
+	/**
+	 * Notifies handler about changes. Handler implementing {@link VariablesChangeHandler}
+	 * receives changes, other handlers are only notified about change of source.
+	 */
+	public static void notifyChange(VariableSourceChangeHandler handler, ChangeableVariableSource source, VariableChanges changes) {
+		if (handler instanceof VariablesChangeHandler)
+			((VariablesChangeHandler) handler).notifyVariablesChange(source, changes);
+		else handler.notifyVariableSourceChange(source);
+	}
+
+	public Set<String> getAdded() {
+		return added;
+	}
+
+	public Set<String> getRemoved() {
+		return removed;
+	}
+
+	public Set<String> getChanged() {
+		return changed;
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/**
+	 * @return {@code true} if variable was added, removed or its value was changed.
+	 */
+	public boolean affects(String variableName) {
+		return changed.contains(variableName) || added.contains(variableName) || removed.contains(variableName);
+	}
+
+	@Override
+	public String toString() {
+		return "added=" + added + ", removed=" + removed + ", changed=" + changed;
+	}
+}
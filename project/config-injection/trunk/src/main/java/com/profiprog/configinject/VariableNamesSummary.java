@@ -0,0 +1,60 @@
+package com.profiprog.configinject;
+
+import java.util.Collection;
+
+/**
+ * Immutable Bloom filter of variable names. {@link #mightContain(String)} returns {@code false}
+ * only for names which surely aren't in summarized collection. Testing uses cached
+ * {@link String#hashCode()}, so it doesn't compare or allocate strings.
+ * @see SummarizedVariableSource
+ */
+public final class VariableNamesSummary {
+
+	private static final int BITS_PER_NAME = 8;
+
+	private static final int HASH_FUNCTIONS = 3;
+
+	private final long[] bits;
+	private final int mask;
+
+	private VariableNamesSummary(int size) {
+		this.bits = new long[Math.max(1, size >>> 6)];
+		this.mask = size - 1;
+	}
+
+	public static VariableNamesSummary of(Collection<String> names) {
+		int size = 64;
+		while (size < names.size() * BITS_PER_NAME && size < 1 << 30) size <<= 1;
+		VariableNamesSummary result = new VariableNamesSummary(size);
+		for (String name : names)
+			if (name != null) result.add(name);
+		return result;
+	}
+
+	private void add(String name) {
+		int hash = name.hashCode();
+		int step = step(hash);
+		for (int i = 0; i < HASH_FUNCTIONS; i++, hash += step) {
+			int bit = hash & mask;
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	public boolean mightContain(String name) {
+		int hash = name.hashCode();
+		int step = step(hash);
+		for (int i = 0; i < HASH_FUNCTIONS; i++, hash += step) {
+			int bit = hash & mask;
+			if ((bits[bit >>> 6] & 1L << bit) == 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Second hash for double hashing, it is odd so all bits are reachable.
+	 */
+	private static int step(int hash) {
+		hash *= 0x9E3779B9;
+		return (hash ^ hash >>> 16) | 1;
+	}
+}
@@ -6,24 +6,96 @@ import org.springframework.util.StringValueResolver;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides method {@link #resolveStringValue(String)} for replacing variables in string.
  * This class also implements {@link VariableSource} and it allows simply define
  * multi variable sources in one.
  */
-public final class VariableResolver implements ChangeableVariableSource, StringValueResolver {
+public final class VariableResolver implements ChangeableVariableSource, UncacheableVariableSource, StringValueResolver {
 	
 	private static final Logger logger = LoggerFactory.getLogger(VariableResolver.class);
 
+	private static final int DEFAULT_TEMPLATE_CACHE_SIZE = 1024;
+
+	private static final int DEFAULT_VALUE_CACHE_SIZE = 4096;
+
+	/**
+	 * Marker of cached variable which wasn't found in any source.
+	 */
+	private static final String MISSING = new String("<missing>");
+
 	private final VariableSource[] sources;
+
+	/**
+	 * Sources providing summary of variable names by index of source, otherwise {@code null}.
+	 */
+	private final SummarizedVariableSource[] summarizedSources;
+
+	/**
+	 * Sources asked for changes before cached value is used.
+	 */
+	private final PolledVariableSource[] polledSources;
 	
 	private int initStatus;
 
-	private final ThreadLocal<LinkedList<String>> evaluatingDynamicProperties = 
-		new ThreadLocal<LinkedList<String>>() {
-			protected LinkedList<String> initialValue() {
-				return new LinkedList<String>();
+	/**
+	 * Signals initialization of each source during parallel initialization, otherwise {@code null}.
+	 */
+	private CountDownLatch[] initialized;
+
+	private final ConcurrentMap<String, VariableTemplate> templates = new ConcurrentHashMap<String, VariableTemplate>();
+
+	private volatile int templateCacheSize = DEFAULT_TEMPLATE_CACHE_SIZE;
+
+	/**
+	 * Snapshot of fully resolved values, {@code null} if value caching is disabled.
+	 * Whole snapshot is replaced by empty one when any source is changed.
+	 */
+	private volatile ConcurrentMap<String, String> resolvedValues;
+
+	private int valueCacheSize = DEFAULT_VALUE_CACHE_SIZE;
+
+	private volatile VariableSourceChangeHandler changeHandler;
+
+	/**
+	 * Whether own handler is set to changeable sources. It's set only when it's needed,
+	 * so source shared by more resolvers keeps handler of the one which needs it.
+	 */
+	private boolean changeHandlerRegistered;
+
+	/**
+	 * {@code null} if instrumentation is disabled.
+	 */
+	private volatile ConfigInstrumentation instrumentation;
+
+	private final List<VariableSourceChangeHandler> additionalChangeHandlers = new CopyOnWriteArrayList<VariableSourceChangeHandler>();
+
+	private volatile Executor changeNotificationExecutor;
+
+	private static final int BATCH_PARALLEL_THRESHOLD = 256;
+
+	/**
+	 * @see Evaluation
+	 */
+	private final ThreadLocal<Object[]> evaluatingDynamicProperties = 
+		new ThreadLocal<Object[]>() {
+			protected Object[] initialValue() {
+				return Evaluation.create();
 			}
 		};
 	
@@ -34,6 +106,8 @@ public final class VariableResolver implements ChangeableVariableSource, StringV
 	 */
 	public VariableResolver(VariableSource... sources) {
 		this.sources = sources;
+		this.summarizedSources = summarizedSources(sources);
+		this.polledSources = polledSources(sources);
 		initStatus = sources.length;
 		try {
 			while (initStatus > 0) {
@@ -46,6 +120,144 @@ public final class VariableResolver implements ChangeableVariableSource, StringV
 			throw new IllegalStateException("Error while initializing " + (initStatus + 1) + ". variable source.", e);
 		}
 	}
+
+	/**
+	 * Sources are initialized in parallel by given executor. Source which resolves variables
+	 * in {@link InicializableVariableSource#initSource(VariableResolver)} waits only for initialization
+	 * of following sources which are looked up, so overshadowing is same as in sequential initialization.
+	 * <p>Executor has to start tasks in order of submission (e.g. {@link java.util.concurrent.ThreadPoolExecutor}
+	 * with FIFO queue), sources are submitted from last to first.
+	 * @see #VariableResolver(VariableSource...)
+	 */
+	public VariableResolver(Executor initExecutor, VariableSource... sources) {
+		this.sources = sources;
+		this.summarizedSources = summarizedSources(sources);
+		this.polledSources = polledSources(sources);
+		initStatus = sources.length;
+		initialized = new CountDownLatch[sources.length];
+		for (int i = 0; i < sources.length; i++) initialized[i] = new CountDownLatch(1);
+
+		List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(Collections.<FutureTask<Void>>nCopies(sources.length, null));
+		for (int i = sources.length - 1; i >= 0; i--) {
+			if (sources[i] instanceof InicializableVariableSource) {
+				FutureTask<Void> task = new FutureTask<Void>(createInitTask(i));
+				tasks.set(i, task);
+				initExecutor.execute(task);
+			}
+			else initialized[i].countDown();
+		}
+
+		int index = sources.length - 1;
+		try {
+			for (; index >= 0; index--)
+				if (tasks.get(index) != null) tasks.get(index).get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw new IllegalStateException("Error while initializing " + (index + 1) + ". variable source.", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Initialization of variable sources was interrupted", e);
+		}
+		initStatus = 0;
+		initialized = null;
+	}
+
+	private Callable<Void> createInitTask(final int index) {
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				Object[] evaluation = evaluatingDynamicProperties.get();
+				Evaluation.setInitializingSource(evaluation, index);
+				try {
+					((InicializableVariableSource) sources[index]).initSource(VariableResolver.this);
+					return null;
+				} finally {
+					Evaluation.setInitializingSource(evaluation, -1);
+					initialized[index].countDown();
+				}
+			}
+		};
+	}
+
+
+	private static SummarizedVariableSource[] summarizedSources(VariableSource[] sources) {
+		SummarizedVariableSource[] result = new SummarizedVariableSource[sources.length];
+		for (int i = 0; i < sources.length; i++)
+			if (sources[i] instanceof SummarizedVariableSource) result[i] = (SummarizedVariableSource) sources[i];
+		return result;
+	}
+
+	private static PolledVariableSource[] polledSources(VariableSource[] sources) {
+		List<PolledVariableSource> result = new ArrayList<PolledVariableSource>();
+		for (VariableSource source : sources)
+			if (source instanceof PolledVariableSource) result.add((PolledVariableSource) source);
+		return result.toArray(new PolledVariableSource[result.size()]);
+	}
+
+	/**
+	 * @return {@code false} if source surely doesn't contain variable
+	 * @see SummarizedVariableSource
+	 */
+	private boolean mightContain(int sourceIndex, String variableName) {
+		SummarizedVariableSource source = summarizedSources[sourceIndex];
+		if (source == null) return true;
+		VariableNamesSummary summary = source.getVariableNamesSummary();
+		return summary == null || summary.mightContain(variableName);
+	}
+
+	/**
+	 * Enables caching of fully resolved variable values. Optional, default is disabled.
+	 * <p>Cache is dropped whenever any {@link ChangeableVariableSource} notifies change,
+	 * {@link PolledVariableSource sources polling changes} are asked for them before cached value is used.
+	 * Values depending on sources implementing {@link UncacheableVariableSource} are never cached.
+	 */
+	public void setValueCaching(boolean valueCaching) {
+		if (valueCaching) registerChangeHandler();
+		resolvedValues = valueCaching ? new ConcurrentHashMap<String, String>() : null;
+	}
+
+	/**
+	 * Maximal count of cached resolved values, when limit is reached cache is cleared.
+	 * Optional, default is {@value #DEFAULT_VALUE_CACHE_SIZE}.
+	 * @see #setValueCaching(boolean)
+	 */
+	public void setValueCacheSize(int valueCacheSize) {
+		this.valueCacheSize = valueCacheSize;
+	}
+
+	/**
+	 * Enables reporting of lookups, resolved variables, cache hits and circular substitutions.
+	 * Optional, default is disabled.
+	 */
+	public void setInstrumentation(ConfigInstrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	public ConfigInstrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
+	/**
+	 * Executor notifying change handlers about change noticed during variable lookup (e.g. by
+	 * {@link PropertyFileVariableSource} polling file without scheduler), so the lookup isn't delayed
+	 * by handlers (e.g. reinjection of {@link ConfigProvider}) and handlers don't see its evaluation.
+	 * Changes noticed outside of evaluation (e.g. by watcher or scheduler thread) are notified by noticing thread.
+	 * <p>Optional, by default single daemon thread is started when needed.
+	 */
+	public void setChangeNotificationExecutor(Executor changeNotificationExecutor) {
+		this.changeNotificationExecutor = changeNotificationExecutor;
+	}
+
+	/**
+	 * Maximal count of compiled strings kept by {@link #resolveStringValue(String)}.
+	 * When limit is reached cache is cleared. Optional, default is {@value #DEFAULT_TEMPLATE_CACHE_SIZE},
+	 * value {@code 0} disables caching.
+	 */
+	public void setTemplateCacheSize(int templateCacheSize) {
+		this.templateCacheSize = templateCacheSize;
+		templates.clear();
+	}
 	
 	/**
 	 * In given string substitute variable references with its values.
@@ -63,27 +275,28 @@ public final class VariableResolver implements ChangeableVariableSource, StringV
 	public String resolveStringValue(String string) {
 		if (string == null) return null;
 
-		VariableParser m = new VariableParser(string);
-		if (!m.find()) return string;
+		if (string.indexOf('$') == -1) return string;
 
-		StringBuilder sb = new StringBuilder(string.length());
-		do {
-			String variableName = m.variableName();
-			String defaultValue = m.defaultValue();
+		return compileTemplate(string).resolve(this);
+	}
 
-			String variableValue = "$".equals(variableName) ? "$" : resolveValue(variableName, defaultValue);
-			if (variableValue == null) throw new IllegalStateException("Missing property " + variableName);
-			else m.appendReplacement(sb, variableValue);
+	private VariableTemplate compileTemplate(String string) {
+		VariableTemplate template = templates.get(string);
+		if (template != null) return template;
 
-		} while (m.find());
-		m.appendTail(sb);
-		
-		return sb.toString();
+		template = VariableTemplate.compile(string);
+		int cacheSize = templateCacheSize;
+		if (cacheSize > 0) {
+			if (templates.size() >= cacheSize) templates.clear();
+			templates.put(string, template);
+		}
+		return template;
 	}
 
-	private IllegalStateException circularSubstitutionError(LinkedList<String> trace, String key) {
+	private IllegalStateException circularSubstitutionError(Object[] evaluation, String key) {
 		StringBuilder sb = new StringBuilder("Circular substitution ");
-		for (String path : trace) {
+		for (int i = 0; i < Evaluation.size(evaluation); i++) {
+			String path = Evaluation.get(evaluation, i);
 			sb.append(path);
 			if (path.equals(key)) sb.append('*');
 			sb.append(" <- ");
@@ -98,65 +311,292 @@ public final class VariableResolver implements ChangeableVariableSource, StringV
 	 * @see VariableSource#getRawValue(java.lang.String)
 	 */
 	public String getRawValue(String variableName) {
+		CountDownLatch[] initialized = this.initialized;
+		if (initialized != null) return getRawValueWhileInitializing(variableName, initialized);
+		if (instrumentation != null) return getInstrumentedRawValue(variableName, null);
+		for(int i = initStatus; i < sources.length; i++) {
+			if (!mightContain(i, variableName)) continue;
+			String variableValue = sources[i].getRawValue(variableName);
+			if(variableValue != null) return variableValue;
+		}
+		return null;
+	}
+
+	/**
+	 * @param evaluation evaluation marked as uncacheable by consulted sources, may be {@code null}
+	 */
+	private String getInstrumentedRawValue(String variableName, Object[] evaluation) {
+		ConfigInstrumentation instrumentation = this.instrumentation;
 		for(int i = initStatus; i < sources.length; i++) {
+			VariableSource source = sources[i];
+			if (evaluation != null && source instanceof UncacheableVariableSource
+					&& !((UncacheableVariableSource) source).isCacheable(variableName))
+				Evaluation.setUncacheable(evaluation, true);
+			if (!mightContain(i, variableName)) continue;
+			long start = System.nanoTime();
+			String variableValue = source.getRawValue(variableName);
+			instrumentation.sourceLookup(i, source, variableName, variableValue != null, System.nanoTime() - start);
+			if(variableValue != null) return variableValue;
+		}
+		return null;
+	}
+
+	/**
+	 * Source being initialized sees only following sources, each of them is used after its initialization.
+	 */
+	private String getRawValueWhileInitializing(String variableName, CountDownLatch[] initialized) {
+		int initializingSource = Evaluation.getInitializingSource(evaluatingDynamicProperties.get());
+		for(int i = initializingSource + 1; i < sources.length; i++) {
+			try {
+				initialized[i].await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for initialization of " + (i + 1) + ". variable source.", e);
+			}
+			if (!mightContain(i, variableName)) continue;
 			String variableValue = sources[i].getRawValue(variableName);
 			if(variableValue != null) return variableValue;
 		}
 		return null;
 	}
+
+	private String getRawValue(String variableName, Object[] evaluation) {
+		if (instrumentation != null) return getInstrumentedRawValue(variableName, evaluation);
+		for(int i = initStatus; i < sources.length; i++) {
+			VariableSource source = sources[i];
+			if (source instanceof UncacheableVariableSource
+					&& !((UncacheableVariableSource) source).isCacheable(variableName))
+				Evaluation.setUncacheable(evaluation, true);
+			if (!mightContain(i, variableName)) continue;
+			String variableValue = source.getRawValue(variableName);
+			if(variableValue != null) return variableValue;
+		}
+		return null;
+	}
+
+	/**
+	 * @return {@code false} if any of sources can't be cached for given variable name.
+	 */
+	@Override
+	public boolean isCacheable(String variableName) {
+		for(int i = initStatus; i < sources.length; i++) {
+			VariableSource source = sources[i];
+			if (source instanceof UncacheableVariableSource
+					&& !((UncacheableVariableSource) source).isCacheable(variableName))
+				return false;
+		}
+		return true;
+	}
 	
 	public String resolveValue(String variableName) {
 		return resolveValue(variableName, null);
 	}
 	
 	public String resolveValue(String variableName, String defaultValue) {
-		LinkedList<String> trace = evaluatingDynamicProperties.get();
-		if (trace.contains(variableName)) throw circularSubstitutionError(trace, variableName);
-		trace.addLast(variableName);
+		Object[] evaluation = evaluatingDynamicProperties.get();
+		ConfigInstrumentation instrumentation = this.instrumentation;
+		if (instrumentation != null) {
+			instrumentation.variableResolved(variableName);
+			if (Evaluation.contains(evaluation, variableName)) instrumentation.circularSubstitution(variableName);
+		}
+		if (Evaluation.contains(evaluation, variableName)) throw circularSubstitutionError(evaluation, variableName);
+		Evaluation.push(evaluation, variableName);
 		try {
 			String resolvedVariableName = resolveStringValue(variableName);
-			String rawValue = getRawValue(resolvedVariableName);
-			return rawValue != null ? resolveStringValue(rawValue) : resolveStringValue(defaultValue);
+			String value = resolveRawValue(resolvedVariableName, evaluation);
+			return value != null ? value : resolveStringValue(defaultValue);
+		} finally {
+			Evaluation.pop(evaluation);
+			if (Evaluation.size(evaluation) == 0) Evaluation.setUncacheable(evaluation, false);
+		}
+	}
+
+	/**
+	 * Names of all variables looked up by current thread (including nested references
+	 * and names which weren't found) are added into given set until recording is stopped
+	 * by passing previous set. Value cache is bypassed while recording.
+	 * @param dependencies set for recording names or {@code null} for stop recording
+	 * @return previous recording set
+	 */
+	Set<String> recordDependencies(Set<String> dependencies) {
+		Object[] evaluation = evaluatingDynamicProperties.get();
+		Set<String> previous = Evaluation.getDependencies(evaluation);
+		Evaluation.setDependencies(evaluation, dependencies);
+		return previous;
+	}
+
+	private String resolveRawValue(String variableName, Object[] evaluation) {
+		Set<String> dependencies = Evaluation.getDependencies(evaluation);
+		if (dependencies != null) dependencies.add(variableName);
+		ConcurrentMap<String, String> batchValues = Evaluation.getBatchValues(evaluation);
+		ConcurrentMap<String, String> resolvedValues = dependencies != null ? null
+				: batchValues != null ? batchValues
+				: initStatus == 0 && this.resolvedValues != null ? polledValueCache() : null;
+		if (resolvedValues == null) {
+			String rawValue = getRawValue(variableName);
+			return rawValue != null ? resolveStringValue(rawValue) : null;
+		}
+
+		String value = resolvedValues.get(variableName);
+		if (instrumentation != null) instrumentation.valueCacheLookup(variableName, value != null);
+		if (value != null) return value == MISSING ? null : value;
+
+		boolean outerUncacheable = Evaluation.isUncacheable(evaluation);
+		Evaluation.setUncacheable(evaluation, false);
+		try {
+			String rawValue = getRawValue(variableName, evaluation);
+			value = rawValue != null ? resolveStringValue(rawValue) : null;
+			if (!Evaluation.isUncacheable(evaluation)) {
+				if (resolvedValues == this.resolvedValues && resolvedValues.size() >= valueCacheSize) resolvedValues.clear();
+				resolvedValues.put(variableName, value != null ? value : MISSING);
+			}
+			return value;
 		} finally {
-			trace.removeLast();
-			if(trace.size() == 0) evaluatingDynamicProperties.remove();
+			if (outerUncacheable) Evaluation.setUncacheable(evaluation, true);
 		}
 	}
 	
+	/**
+	 * @return value cache dropped if any polled source noticed change
+	 */
+	private ConcurrentMap<String, String> polledValueCache() {
+		for (PolledVariableSource source : polledSources) source.checkChanges();
+		return resolvedValues;
+	}
+
 	/**
 	 * Resolve all variables in values of given map. 
 	 * @param map with values replaced
 	 * @return new map with resolved variables.
 	 */
 	public Map<String, String> resolveValues(Map<String, String> map) {
+		Map<String, String> resolved = resolveStringValues(map.values());
 		Map<String, String> result = new HashMap<String, String>(map.size());
 		
 		for(Map.Entry<String, String> entry : map.entrySet())
-			result.put(entry.getKey(), resolveStringValue(entry.getValue()));
+			result.put(entry.getKey(), resolved.get(entry.getValue()));
 		
 		return result;
 	}
 	
 	public Map<String, String> resolveAndReplaceValues(Map<String, String> map) {
+		Map<String, String> resolved = resolveStringValues(map.values());
 		for(Map.Entry<String, String> entry : map.entrySet())
-			map.put(entry.getKey(), resolveStringValue(entry.getValue()));
+			map.put(entry.getKey(), resolved.get(entry.getValue()));
 		return map;
 	}
 
+	/**
+	 * Runs task with all variables resolved by current thread memoized, so each variable
+	 * is looked up in sources only once. Values depending on {@link UncacheableVariableSource}
+	 * aren't memoized. Nested batch is part of outer one.
+	 */
+	public void resolveInBatch(Runnable task) {
+		if (Evaluation.getBatchValues(evaluatingDynamicProperties.get()) != null) {
+			task.run();
+			return;
+		}
+		runInBatch(task, new ConcurrentHashMap<String, String>());
+	}
+
+	private void runInBatch(Runnable task, ConcurrentMap<String, String> batchValues) {
+		Object[] evaluation = evaluatingDynamicProperties.get();
+		ConcurrentMap<String, String> previous = Evaluation.getBatchValues(evaluation);
+		Evaluation.setBatchValues(evaluation, batchValues);
+		try {
+			task.run();
+		} finally {
+			Evaluation.setBatchValues(evaluation, previous);
+		}
+	}
+
+	/**
+	 * Resolves strings in one batch.
+	 * @return resolved values by given strings
+	 * @see #resolveInBatch(Runnable)
+	 */
+	public Map<String, String> resolveStringValues(Collection<String> strings) {
+		return resolveStringValues(strings, null);
+	}
+
+	/**
+	 * Resolves strings in one batch, large batches are split into parts resolved by given pool.
+	 * Parts share memoized values, but parts resolved concurrently may look up same variable more than once.
+	 * @param pool pool for resolving parts of batch or {@code null}
+	 * @return resolved values by given strings
+	 * @see #resolveInBatch(Runnable)
+	 */
+	public Map<String, String> resolveStringValues(Collection<String> strings, ForkJoinPool pool) {
+		final List<String> distinct = new ArrayList<String>(new LinkedHashSet<String>(strings));
+		final String[] resolved = new String[distinct.size()];
+		ConcurrentMap<String, String> batchValues = Evaluation.getBatchValues(evaluatingDynamicProperties.get());
+		if (batchValues == null) batchValues = new ConcurrentHashMap<String, String>();
+
+		if (pool == null || distinct.size() <= BATCH_PARALLEL_THRESHOLD) {
+			runInBatch(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < resolved.length; i++) resolved[i] = resolveStringValue(distinct.get(i));
+				}
+			}, batchValues);
+		}
+		else pool.invoke(new BatchPart(distinct, resolved, 0, resolved.length, batchValues));
+
+		Map<String, String> result = new HashMap<String, String>(resolved.length * 4 / 3 + 1);
+		for (int i = 0; i < resolved.length; i++) result.put(distinct.get(i), resolved[i]);
+		return result;
+	}
+
+	private final class BatchPart extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> strings;
+		private final String[] resolved;
+		private final int from;
+		private final int to;
+		private final ConcurrentMap<String, String> batchValues;
+
+		BatchPart(List<String> strings, String[] resolved, int from, int to, ConcurrentMap<String, String> batchValues) {
+			this.strings = strings;
+			this.resolved = resolved;
+			this.from = from;
+			this.to = to;
+			this.batchValues = batchValues;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > BATCH_PARALLEL_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchPart(strings, resolved, from, middle, batchValues),
+						new BatchPart(strings, resolved, middle, to, batchValues));
+				return;
+			}
+			runInBatch(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = from; i < to; i++) resolved[i] = resolveStringValue(strings.get(i));
+				}
+			}, batchValues);
+		}
+	}
+
 	/**
 	 * Resolve all variables in keys and values of given map. 
 	 * @param collection collection which can contains variables
 	 * @return new list with resolved variables.
 	 */
 	public List<String> resolveItems(Collection<String> collection) {
+		Map<String, String> resolved = resolveStringValues(collection);
 		List<String> result = new ArrayList<String>(collection.size());
-		for(String item : collection) result.add(resolveStringValue(item));
+		for(String item : collection) result.add(resolved.get(item));
 		return result;
 	}
 	
 	public void resolveAndReplaceItems(Collection<String> collection) {
+		Map<String, String> resolved = resolveStringValues(collection);
 		Collection<String> aux = new ArrayList<String>(collection.size());
-		for(String item : collection) aux.add(resolveStringValue(item));
+		for(String item : collection) aux.add(resolved.get(item));
 		
 		collection.clear();
 		collection.addAll(aux);
@@ -189,11 +629,105 @@ public final class VariableResolver implements ChangeableVariableSource, StringV
 	}
 
 	@Override
-	public void setVariableSourceChangeHandler(final VariableSourceChangeHandler changeHandler) {
-		VariableSourceChangeHandler handler = new VariableSourceChangeHandler() {
+	public void setVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler) {
+		this.changeHandler = changeHandler;
+		if (changeHandler != null) registerChangeHandler();
+	}
+
+	/**
+	 * Registers handler notified about changes together with handler set by
+	 * {@link #setVariableSourceChangeHandler(VariableSourceChangeHandler)}.
+	 * <p>Resolver sets its handler to changeable sources when first handler is registered
+	 * or value caching is enabled, {@link ChangeableVariableSource} accepts only one handler.
+	 */
+	public void addVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler) {
+		additionalChangeHandlers.add(changeHandler);
+		registerChangeHandler();
+	}
+
+	public void removeVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler) {
+		additionalChangeHandlers.remove(changeHandler);
+	}
+
+	/**
+	 * @param changes changed variables or {@code null} if they are unknown
+	 */
+	private void notifyChangeHandlers(final VariableChanges changes) {
+		// resolved values may depend on changed variables through references, so whole cache is dropped
+		if (resolvedValues != null) resolvedValues = new ConcurrentHashMap<String, String>();
+		if (changeHandler == null && additionalChangeHandlers.isEmpty()) return;
+		if (!Evaluation.isActive(evaluatingDynamicProperties.get())) {
+			notifyChangeHandlersNow(changes);
+			return;
+		}
+		// change was noticed by lookup, outer evaluation would report circular substitutions to handlers
+		changeNotificationExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				Object[] outer = evaluatingDynamicProperties.get();
+				if (!Evaluation.isActive(outer)) {
+					notifyChangeHandlersNow(changes);
+					return;
+				}
+				evaluatingDynamicProperties.set(Evaluation.create());
+				try {
+					notifyChangeHandlersNow(changes);
+				} finally {
+					evaluatingDynamicProperties.set(outer);
+				}
+			}
+		});
+	}
+
+	private Executor changeNotificationExecutor() {
+		Executor executor = changeNotificationExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				if (changeNotificationExecutor == null) changeNotificationExecutor = createChangeNotificationExecutor();
+				executor = changeNotificationExecutor;
+			}
+		}
+		return executor;
+	}
+
+	private static Executor createChangeNotificationExecutor() {
+		// single thread keeps order of notifications, it terminates when idle
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "variable-change-notifier");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private void notifyChangeHandlersNow(VariableChanges changes) {
+		VariableSourceChangeHandler changeHandler = this.changeHandler;
+		if (changeHandler != null) notifyChangeHandler(changeHandler, changes);
+		for (VariableSourceChangeHandler handler : additionalChangeHandlers) notifyChangeHandler(handler, changes);
+	}
+
+	private void notifyChangeHandler(VariableSourceChangeHandler handler, VariableChanges changes) {
+		if (changes == null) handler.notifyVariableSourceChange(this);
+		else VariableChanges.notifyChange(handler, this, changes);
+	}
+
+	private synchronized void registerChangeHandler() {
+		if (changeHandlerRegistered) return;
+		changeHandlerRegistered = true;
+		VariableSourceChangeHandler handler = new VariablesChangeHandler() {
 			@Override
 			public void notifyVariableSourceChange(ChangeableVariableSource changedSource) {
-				changeHandler.notifyVariableSourceChange(VariableResolver.this);
+				notifyChangeHandlers(null);
+			}
+
+			@Override
+			public void notifyVariablesChange(ChangeableVariableSource changedSource, VariableChanges changes) {
+				notifyChangeHandlers(changes);
 			}
 		};
 		for (VariableSource source : sources)
@@ -0,0 +1,74 @@
+package com.profiprog.configinject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable compiled form of string with variable references.
+ * String is parsed only once by {@link VariableParser} into literal segments
+ * and variable slots (with optional default values), so resolving is only
+ * looking up variables and concatenating.
+ * @see VariableResolver#resolveStringValue(String)
+ */
+final class VariableTemplate {
+
+	private final String source;
+	private final String[] literals;
+	private final String[] variableNames;
+	private final String[] defaultValues;
+
+	private VariableTemplate(String source, String[] literals, String[] variableNames, String[] defaultValues) {
+		this.source = source;
+		this.literals = literals;
+		this.variableNames = variableNames;
+		this.defaultValues = defaultValues;
+	}
+
+	static VariableTemplate compile(String string) {
+		VariableParser m = new VariableParser(string);
+		if (!m.find()) return new VariableTemplate(string, null, null, null);
+
+		List<String> literals = new ArrayList<String>();
+		List<String> variableNames = new ArrayList<String>();
+		List<String> defaultValues = new ArrayList<String>();
+
+		StringBuilder literal = new StringBuilder();
+		do {
+			m.appendReplacement(literal, "");
+			String variableName = m.variableName();
+			if ("$".equals(variableName)) literal.append('$');
+			else {
+				literals.add(literal.toString());
+				literal.setLength(0);
+				variableNames.add(variableName);
+				defaultValues.add(m.defaultValue());
+			}
+		} while (m.find());
+		m.appendTail(literal);
+		literals.add(literal.toString());
+
+		return new VariableTemplate(string,
+				literals.toArray(new String[literals.size()]),
+				variableNames.toArray(new String[variableNames.size()]),
+				defaultValues.toArray(new String[defaultValues.size()]));
+	}
+
+	String resolve(VariableResolver variables) {
+		if (literals == null) return source;
+		if (variableNames.length == 0) return literals[0];
+
+		StringBuilder sb = new StringBuilder(source.length());
+		sb.append(literals[0]);
+		for (int i = 0; i < variableNames.length; i++) {
+			String variableValue = variables.resolveValue(variableNames[i], defaultValues[i]);
+			if (variableValue == null) throw new IllegalStateException("Missing property " + variableNames[i]);
+			sb.append(variableValue).append(literals[i + 1]);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+}
@@ -5,10 +5,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.config.*;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringValueResolver;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class VariablesResolverPlaceholderConfigurer implements BeanFactoryPostProcessor {
 
@@ -18,13 +33,21 @@ public class VariablesResolverPlaceholderConfigurer implements BeanFactoryPostPr
 
 	private final VariableResolver variableResolver;
 
+	private int parallelism = 1;
+
+	/**
+	 * Decisions of {@link #isVariableSource(BeanDefinition, ClassLoader, MetadataReaderFactory)} by bean class name.
+	 */
+	private final ConcurrentMap<String, Boolean> variableSources = new ConcurrentHashMap<String, Boolean>();
+
 	private final StringValueResolver proxy = new StringValueResolver() {
 		@Override
 		public String resolveStringValue(String strVal) {
+			if (strVal == null || strVal.indexOf('$') == -1) return strVal;
 			try {
 				String resolvedVal = variableResolver.resolveStringValue(strVal);
-				if (!strVal.equals(resolvedVal))
-					logger.debug("Resolved values: " + strVal + " -> " + resolvedVal);
+				if (logger.isDebugEnabled() && !strVal.equals(resolvedVal))
+					logger.debug("Resolved values: {} -> {}", strVal, resolvedVal);
 				return resolvedVal;
 			} catch (RuntimeException e) {
 				logger.warn("Unable to resolve values in: " + strVal, e);
@@ -37,23 +60,20 @@ public class VariablesResolverPlaceholderConfigurer implements BeanFactoryPostPr
 		this.variableResolver = variableResolver;
 	}
 
-	@Override
-    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
-		BeanDefinitionVisitor visitor = new BeanDefinitionVisitor(proxy);
+	/**
+	 * Count of threads processing bean definitions. Optional, default is {@code 1}.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
 
+	@Override
+    public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		final MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory(beanFactory.getBeanClassLoader());
 		String[] beanNames = beanFactory.getBeanDefinitionNames();
-		for (String curName : beanNames) {
-			// Check that we're not parsing our own bean definition,
-			// to avoid failing on unresolvable placeholders in properties file
-			// locations.
-			BeanDefinition bd = beanFactory.getBeanDefinition(curName);
-			try {
-				if (!isVariableSource(bd.getBeanClassName()))
-					visitor.visitBeanDefinition(bd);
-			} catch (Exception ex) {
-				throw new BeanDefinitionStoreException(bd.getResourceDescription(), curName, ex.getMessage());
-			}
-		}
+
+		if (parallelism <= 1 || beanNames.length < 2) processBeanDefinitions(beanFactory, metadataReaderFactory, Arrays.asList(beanNames));
+		else processBeanDefinitionsInParallel(beanFactory, metadataReaderFactory, beanNames);
 
 		// New in Spring 2.5: resolve placeholders in alias target names and aliases as well.
 		beanFactory.resolveAliases(proxy);
@@ -63,8 +83,80 @@ public class VariablesResolverPlaceholderConfigurer implements BeanFactoryPostPr
             ReflectionUtils.invokeMethod(addEmbeddedValueResolverMethod, beanFactory, proxy);
 	}
 
-	private boolean isVariableSource(String beanClassName) throws ClassNotFoundException {
-		return VariableSource.class.isAssignableFrom(Class.forName(beanClassName));
+	private void processBeanDefinitionsInParallel(final ConfigurableListableBeanFactory beanFactory,
+			final MetadataReaderFactory metadataReaderFactory, String[] beanNames) {
+		int threads = Math.min(parallelism, beanNames.length);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> parts = new ArrayList<Future<?>>(threads);
+			for (int i = 0; i < threads; i++) {
+				final List<String> part = Arrays.asList(beanNames)
+						.subList(i * beanNames.length / threads, (i + 1) * beanNames.length / threads);
+				parts.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						processBeanDefinitions(beanFactory, metadataReaderFactory, part);
+					}
+				}));
+			}
+			for (Future<?> part : parts) part.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("Processing of bean definitions failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Processing of bean definitions was interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void processBeanDefinitions(final ConfigurableListableBeanFactory beanFactory,
+			final MetadataReaderFactory metadataReaderFactory, final List<String> beanNames) {
+		// variables shared by bean definitions are looked up only once
+		variableResolver.resolveInBatch(new Runnable() {
+			@Override
+			public void run() {
+				BeanDefinitionVisitor visitor = new BeanDefinitionVisitor(proxy);
+				for (String curName : beanNames) {
+					// Check that we're not parsing our own bean definition,
+					// to avoid failing on unresolvable placeholders in properties file
+					// locations.
+					BeanDefinition bd = beanFactory.getBeanDefinition(curName);
+					try {
+						if (!isVariableSource(bd, beanFactory.getBeanClassLoader(), metadataReaderFactory))
+							visitor.visitBeanDefinition(bd);
+					} catch (Exception ex) {
+						throw new BeanDefinitionStoreException(bd.getResourceDescription(), curName, ex.getMessage());
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Bean class is inspected by reading its class file, so class isn't loaded
+	 * if it wasn't loaded yet.
+	 */
+	private boolean isVariableSource(BeanDefinition bd, ClassLoader classLoader, MetadataReaderFactory metadataReaderFactory)
+			throws ClassNotFoundException {
+		if (bd instanceof AbstractBeanDefinition && ((AbstractBeanDefinition) bd).hasBeanClass())
+			return VariableSource.class.isAssignableFrom(((AbstractBeanDefinition) bd).getBeanClass());
+
+		String beanClassName = bd.getBeanClassName();
+		if (beanClassName == null) return false;
+		Boolean result = variableSources.get(beanClassName);
+		if (result == null) {
+			try {
+				result = new AssignableTypeFilter(VariableSource.class)
+						.match(metadataReaderFactory.getMetadataReader(beanClassName), metadataReaderFactory);
+			} catch (IOException e) {
+				// class file isn't accessible
+				result = VariableSource.class.isAssignableFrom(ClassUtils.forName(beanClassName, classLoader));
+			}
+			variableSources.put(beanClassName, result);
+		}
+		return result;
 	}
 
 }
@@ -1,11 +1,72 @@
 package com.profiprog.configinject.util;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 public final class MapParser {
+
+	private static final int BUFFER_SIZE = 8192;
 	
 	private MapParser() {}
+
+	/**
+	 * Receives entries in order of their occurrence in parsed input.
+	 * @see MapParser#parse(CharSequence, EntryHandler)
+	 */
+	public interface EntryHandler {
+		/**
+		 * @param value {@code null} if entry has no ':' separator
+		 */
+		void entry(String key, String value);
+	}
+
+	/**
+	 * Malformed input of {@link MapParser#parse(CharSequence, EntryHandler)}.
+	 */
+	public static class MapParseException extends IllegalArgumentException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int position;
+
+		public MapParseException(String message, int position) {
+			super(message + " at position " + position);
+			this.position = position;
+		}
+
+		/**
+		 * @return zero based index of character in input where the error was found
+		 */
+		public int getPosition() {
+			return position;
+		}
+	}
+
+	/**
+	 * Streaming variant of {@link #parseMap(String)}. Input is read in one pass
+	 * and only keys and values handed to {@code handler} are allocated.
+	 * <p>Unlike {@link #parseMap(String)} backslash escapes any character (including another backslash)
+	 * and unterminated quote or trailing backslash is reported by {@link MapParseException}.
+	 * Duplicate keys are passed to {@code handler} as they occur.
+	 */
+	public static void parse(CharSequence input, EntryHandler handler) {
+		StreamingParser parser = new StreamingParser(handler);
+		for (int i = 0, length = input.length(); i < length; i++) parser.accept(input.charAt(i));
+		parser.finish();
+	}
+
+	/**
+	 * @see #parse(CharSequence, EntryHandler)
+	 */
+	public static void parse(Reader reader, EntryHandler handler) throws IOException {
+		StreamingParser parser = new StreamingParser(handler);
+		char[] buffer = new char[BUFFER_SIZE];
+		for (int count; (count = reader.read(buffer)) != -1;)
+			for (int i = 0; i < count; i++) parser.accept(buffer[i]);
+		parser.finish();
+	}
 	
 	public static Map<String,String> parseMap(String string) {
 		Map<String,String> result = new LinkedHashMap<String, String>();
@@ -88,4 +149,99 @@ public final class MapParser {
 		return fromIndex;
 	}
 
+	/**
+	 * Push parser fed by single characters. Current key or value is collected (already unescaped)
+	 * in reused buffer, leading whitespace is skipped and trailing whitespace and surrounding quotes
+	 * are cut off when the token is finished.
+	 */
+	private static class StreamingParser {
+
+		private final EntryHandler handler;
+		private final StringBuilder token = new StringBuilder();
+
+		private int position;
+		private boolean escaped;
+		private char inQuotes;
+		private int quotePosition;
+
+		/** length of token without trailing whitespace */
+		private int significant;
+		/** quote which token starts with */
+		private char openingQuote;
+		/** length of token up to last closing {@link #openingQuote} */
+		private int closingQuote = -1;
+
+		private String key;
+		private boolean entryContent;
+
+		StreamingParser(EntryHandler handler) {
+			this.handler = handler;
+		}
+
+		void accept(char c) {
+			if (escaped) {
+				escaped = false;
+				append(c, true);
+			} else if (c == '\\') {
+				escaped = true;
+				entryContent = true;
+			} else if (inQuotes != 0) {
+				append(c, true);
+				if (c == inQuotes) {
+					inQuotes = 0;
+					if (c == openingQuote) closingQuote = token.length();
+				}
+			} else if (c == '\'' || c == '"') {
+				inQuotes = c;
+				quotePosition = position;
+				if (token.length() == 0) openingQuote = c;
+				append(c, true);
+			} else if (c == ',') {
+				endEntry();
+			} else if (c == ':' && key == null) {
+				key = token();
+				entryContent = true;
+			} else {
+				append(c, c > ' ');
+			}
+			position++;
+		}
+
+		void finish() {
+			if (escaped) throw new MapParseException("Incomplete escape sequence", position - 1);
+			if (inQuotes != 0) throw new MapParseException("Unterminated quote", quotePosition);
+			endEntry();
+		}
+
+		private void append(char c, boolean significant) {
+			if (!significant && token.length() == 0) return;
+			token.append(c);
+			if (significant) {
+				this.significant = token.length();
+				entryContent = true;
+			}
+		}
+
+		private String token() {
+			int begin = 0, end = significant;
+			if (openingQuote != 0 && closingQuote == end && end >= 2) {
+				begin++;
+				end--;
+			}
+			String result = token.substring(begin, end);
+			token.setLength(0);
+			significant = 0;
+			openingQuote = 0;
+			closingQuote = -1;
+			return result;
+		}
+
+		private void endEntry() {
+			if (key != null) handler.entry(key, token());
+			else if (entryContent) handler.entry(token(), null);
+			else token.setLength(0);
+			key = null;
+			entryContent = false;
+		}
+	}
 }
@@ -0,0 +1,230 @@
+package com.profiprog.configinject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.profiprog.configinject.ChangeableVariableSource.VariableSourceChangeHandler;
+import com.profiprog.configinject.util.MapParser;
+
+public class ConfigProviderTest {
+
+	private final List<String> injections = new ArrayList<String>();
+	private final Map<String, String> values = MapParser.parseMap("a:1, b:${c}, c:2, d:3, t:${c}m, s:3KB, f:true");
+	private VariableSourceChangeHandler changeHandler;
+	private ConfigProvider tested;
+
+	public class Bean {
+		@AutoConfig(value = "a", priority = 7)
+		public void setA(String value) {
+			injections.add("a=" + value);
+		}
+
+		@AutoConfig("b")
+		public void setB(String value) {
+			injections.add("b=" + value);
+		}
+
+		@AutoConfig(value = "d", priority = 1)
+		public void setD(String value) {
+			injections.add("d=" + value);
+		}
+	}
+
+	public static class FieldBean {
+		@AutoConfig("d")
+		private Integer number;
+
+		@AutoConfig("a")
+		private final String text = String.valueOf("");
+	}
+
+	public class SubBean extends Bean {
+		@Override
+		@AutoConfig("c")
+		public void setB(String value) {
+			injections.add("sub.b=" + value);
+		}
+
+		@AutoConfig(value = "a", priority = 2)
+		public void setE(String value) {
+			injections.add("e=" + value);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		VariableResolver variables = new VariableResolver(new ChangeableVariableSource() {
+			@Override
+			public String getRawValue(String variableName) {
+				return values.get(variableName);
+			}
+
+			@Override
+			public void setVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler) {
+				ConfigProviderTest.this.changeHandler = changeHandler;
+			}
+		});
+		tested = new ConfigProvider();
+		tested.setVariableResolver(variables);
+		tested.afterPropertiesSet();
+		tested.postProcessBeforeInitialization(new Bean(), "bean");
+	}
+
+	private void change(String... names) {
+		for (String name : names) values.put(name, values.get(name) + "0");
+		VariableChanges changes = new VariableChanges(Collections.<String>emptySet(), Collections.<String>emptySet(),
+				new HashSet<String>(Arrays.asList(names)));
+		VariableChanges.notifyChange(changeHandler, null, changes);
+	}
+
+	@Test
+	public void testInjectionsInPriorityOrder() {
+		assertEquals("[d=3, b=2, a=1]", injections.toString());
+	}
+
+	@Test
+	public void testOnlyDependentInjectionsArePerformed() {
+		injections.clear();
+		change("c");
+		assertEquals("[b=20]", injections.toString());
+
+		injections.clear();
+		change("a", "d");
+		assertEquals("[d=30, a=10]", injections.toString());
+
+		injections.clear();
+		changeHandler.notifyVariableSourceChange(null);
+		assertEquals("[d=30, b=20, a=10]", injections.toString());
+	}
+
+	@Test
+	public void testFieldInjection() {
+		FieldBean bean = new FieldBean();
+		tested.postProcessBeforeInitialization(bean, "fieldBean");
+		assertEquals(Integer.valueOf(3), bean.number);
+		assertEquals("1", bean.text);
+
+		change("d");
+		assertEquals(Integer.valueOf(30), bean.number);
+	}
+
+	@Test
+	public void testInheritedMembers() {
+		injections.clear();
+		tested.postProcessBeforeInitialization(new SubBean(), "subBean");
+		tested.postProcessBeforeInitialization(new SubBean(), "otherSubBean");
+		assertEquals("[d=3, e=1, sub.b=2, a=1, d=3, e=1, sub.b=2, a=1]", injections.toString());
+	}
+
+	@Test
+	public void testPropertyHandles() {
+		TypedProperty<String> text = tested.getPropertyHandle("b", String.class);
+		LongProperty number = tested.getLongProperty("c", -1);
+		LongProperty missing = tested.getLongProperty("x", -1);
+		LongProperty duration = tested.getDurationProperty("t", 0);
+		LongProperty size = tested.getDataSizeProperty("s", 0);
+		BooleanProperty flag = tested.getBooleanProperty("f", false);
+		assertEquals("2", text.get());
+		assertEquals(2, number.get());
+		assertEquals(-1, missing.get());
+		assertEquals(120000, duration.get());
+		assertEquals(3072, size.get());
+		assertEquals(true, flag.get());
+
+		change("c");
+		assertEquals("20", text.get());
+		assertEquals(20, number.get());
+		assertEquals(1200000, duration.get());
+	}
+
+	@Test
+	public void testPropertyHandlesAreShared() {
+		LongProperty number = tested.getLongProperty("c", -1);
+		assertSame(number, tested.getLongProperty("c", -1));
+		assertNotSame(number, tested.getLongProperty("c", -2));
+		assertNotSame(number, tested.getDurationProperty("c", -1));
+		TypedProperty<String> text = tested.getPropertyHandle("b", String.class);
+		assertSame(text, tested.getPropertyHandle("b", String.class, null));
+
+		injections.clear();
+		for (int i = 0; i < 100; i++) tested.getLongProperty("c", -1);
+		change("c");
+		assertEquals(20, number.get());
+		assertEquals("[b=20]", injections.toString());
+	}
+
+	@Test
+	public void testPlainLongIsNotParsedWithUnits() {
+		try {
+			tested.getLongProperty("s", -1);
+			fail("3KB accepted as plain long");
+		} catch (NumberFormatException expected) {}
+		try {
+			tested.getLongProperty("t", -1);
+			fail("2m accepted as plain long");
+		} catch (NumberFormatException expected) {}
+		assertEquals(Long.valueOf(2), tested.getTypedProperty("c", Long.class));
+	}
+
+	@Test
+	public void testDataSizeOverflowIsRejected() {
+		assertEquals(16L << 40, DataSizePropertyConverter.parseBytes("16TB"));
+		assertEquals(8388607L << 40, DataSizePropertyConverter.parseBytes("8388607TB"));
+		try {
+			DataSizePropertyConverter.parseBytes("16777216TB");
+			fail("overflow accepted");
+		} catch (IllegalArgumentException expected) {}
+		try {
+			DataSizePropertyConverter.parseBytes("-8388609TB");
+			fail("overflow accepted");
+		} catch (IllegalArgumentException expected) {}
+	}
+
+	@Test
+	public void testPolledFileChangedDuringNestedResolution() throws Exception {
+		File file = File.createTempFile("config-provider-test", ".properties");
+		file.deleteOnExit();
+		write(file, "a=1\nb=${a}\n");
+		PropertyFileVariableSource source = new PropertyFileVariableSource();
+		source.setPropertyFileName(file.getPath());
+		source.setCheckPeriodInSeconds(0);
+		VariableResolver variables = new VariableResolver(source);
+		ConfigProvider provider = new ConfigProvider();
+		provider.setVariableResolver(variables);
+		provider.afterPropertiesSet();
+		TypedProperty<String> handle = provider.getPropertyHandle("b", String.class);
+		assertEquals("1", handle.get());
+
+		write(file, "a=2\nb=${a}\n");
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		// lookup of b reloads file, reinjection of handle depending on b must not see b as circular
+		assertEquals("<2>", variables.resolveStringValue("<${b}>"));
+		for (int i = 0; i < 100 && !"2".equals(handle.get()); i++) Thread.sleep(50);
+		assertEquals("2", handle.get());
+	}
+
+	private static void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("ISO-8859-1"));
+		} finally {
+			out.close();
+		}
+	}
+}
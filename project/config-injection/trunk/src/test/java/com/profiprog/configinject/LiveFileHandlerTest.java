@@ -0,0 +1,194 @@
+package com.profiprog.configinject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.profiprog.configinject.LiveFile.FileLoader;
+
+public class LiveFileHandlerTest {
+
+	private static void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("ISO-8859-1"));
+		} finally {
+			out.close();
+		}
+	}
+
+	@Test
+	public void testWatchedFileIsReloadedOnChange() throws Exception {
+		final File file = File.createTempFile("live-file-test", ".properties");
+		file.deleteOnExit();
+		write(file, "a=1");
+
+		final BlockingQueue<String> loaded = new LinkedBlockingQueue<String>();
+		LiveFileHandler tested = new LiveFileHandler(new FileLoader() {
+			@Override
+			public void loadFile(File file) throws IOException {
+				loaded.add(new Properties(file).getProperty("a"));
+			}
+		});
+		tested.setPropertyFile(file.getPath());
+		tested.setWatchChanges(true);
+		tested.setWatchDebouncePeriod(50);
+		try {
+			tested.checkChanges();
+			assertEquals("1", loaded.poll());
+			assertTrue(tested.isWatching());
+
+			write(file, "a=2");
+			write(file, "a=3");
+			assertEquals("3", loaded.poll(10, TimeUnit.SECONDS));
+
+			tested.checkChanges();
+			assertEquals(null, loaded.poll(200, TimeUnit.MILLISECONDS));
+		} finally {
+			tested.close();
+		}
+	}
+
+	@Test
+	public void testChangeWhileLoadingIsNotMissed() throws Exception {
+		final File file = File.createTempFile("live-file-test", ".properties");
+		file.deleteOnExit();
+		write(file, "a=1");
+
+		final BlockingQueue<String> loaded = new LinkedBlockingQueue<String>();
+		LiveFileHandler tested = new LiveFileHandler(new FileLoader() {
+			@Override
+			public void loadFile(File file) throws IOException {
+				String value = new Properties(file).getProperty("a");
+				// file is changed right after it was read
+				if (loaded.isEmpty() && "1".equals(value)) write(file, "a=2");
+				loaded.add(value);
+			}
+		});
+		tested.setPropertyFile(file.getPath());
+		tested.setWatchChanges(true);
+		tested.setWatchDebouncePeriod(50);
+		try {
+			tested.checkChanges();
+			assertEquals("1", loaded.poll());
+			assertEquals("2", loaded.poll(10, TimeUnit.SECONDS));
+		} finally {
+			tested.close();
+		}
+	}
+
+	@Test
+	public void testBusySiblingFileDoesNotPostponeReload() throws Exception {
+		final File file = File.createTempFile("live-file-test", ".properties");
+		file.deleteOnExit();
+		File sibling = File.createTempFile("live-file-sibling", ".log", file.getParentFile());
+		sibling.deleteOnExit();
+		write(file, "a=1");
+
+		final BlockingQueue<String> loaded = new LinkedBlockingQueue<String>();
+		LiveFileHandler tested = new LiveFileHandler(new FileLoader() {
+			@Override
+			public void loadFile(File file) throws IOException {
+				loaded.add(new Properties(file).getProperty("a"));
+			}
+		});
+		tested.setPropertyFile(file.getPath());
+		tested.setWatchChanges(true);
+		tested.setWatchDebouncePeriod(200);
+		try {
+			tested.checkChanges();
+			assertEquals("1", loaded.poll());
+
+			write(file, "a=2");
+			long start = System.currentTimeMillis();
+			String reloaded = null;
+			for (int i = 0; reloaded == null && i < 300; i++) {
+				write(sibling, "line " + i);
+				reloaded = loaded.poll(20, TimeUnit.MILLISECONDS);
+			}
+			assertEquals("2", reloaded);
+			assertTrue("reloaded after " + (System.currentTimeMillis() - start) + " ms",
+					System.currentTimeMillis() - start < 3000);
+		} finally {
+			tested.close();
+		}
+	}
+
+	private static File missingDirectory() throws IOException {
+		File directory = File.createTempFile("live-file-dir", "");
+		assertTrue(directory.delete());
+		directory.deleteOnExit();
+		return directory;
+	}
+
+	@Test
+	public void testDefaultFileIsCreatedBeforeWatching() throws Exception {
+		File template = File.createTempFile("live-file-template", ".properties");
+		template.deleteOnExit();
+		write(template, "a=1");
+		final File file = new File(missingDirectory(), "config.properties");
+		file.deleteOnExit();
+
+		final BlockingQueue<String> loaded = new LinkedBlockingQueue<String>();
+		LiveFileHandler tested = new LiveFileHandler(new FileLoader() {
+			@Override
+			public void loadFile(File file) throws IOException {
+				loaded.add(new Properties(file).getProperty("a"));
+			}
+		});
+		tested.setPropertyFile(file.getPath());
+		tested.setTemplateResource(template.getPath());
+		tested.setWatchChanges(true);
+		tested.setWatchDebouncePeriod(50);
+		try {
+			tested.checkChanges();
+			assertEquals("1", loaded.poll());
+			assertTrue(tested.isWatching());
+
+			write(file, "a=2");
+			assertEquals("2", loaded.poll(10, TimeUnit.SECONDS));
+		} finally {
+			tested.close();
+		}
+	}
+
+	@Test
+	public void testWatchingIsRetriedWhenDirectoryAppears() throws Exception {
+		File directory = missingDirectory();
+		final File file = new File(directory, "config.properties");
+		file.deleteOnExit();
+
+		final BlockingQueue<String> loaded = new LinkedBlockingQueue<String>();
+		LiveFileHandler tested = new LiveFileHandler(new FileLoader() {
+			@Override
+			public void loadFile(File file) throws IOException {
+				loaded.add(new Properties(file).getProperty("a"));
+			}
+		});
+		tested.setPropertyFile(file.getPath());
+		tested.setChangesCheckPeriod(0);
+		tested.setWatchChanges(true);
+		tested.setWatchDebouncePeriod(50);
+		try {
+			tested.checkChanges();
+			assertFalse(tested.isWatching());
+
+			assertTrue(directory.mkdir());
+			write(file, "a=1");
+			tested.checkChanges();
+			assertEquals("1", loaded.poll());
+			assertTrue(tested.isWatching());
+		} finally {
+			tested.close();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.profiprog.configinject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.profiprog.configinject.util.MapParser;
+
+public class PropertiesTest {
+
+	private Properties createProperties() {
+		return new Properties(MapParser.parseMap("a:1, a.b:2, a.b.c:3, a.b-c:4, a.bc:5, a.d.e:6, ab.c:7, b:8"));
+	}
+
+	private List<String> keys(Properties properties) {
+		List<String> result = new ArrayList<String>();
+		for (String key : properties) result.add(key);
+		return result;
+	}
+
+	@Test
+	public void testSelectedSubTree() {
+		Properties tested = createProperties().select("a");
+		assertEquals("[b, b-c, b.c, bc, d.e]", keys(tested).toString());
+		assertEquals(5, tested.size());
+		assertEquals(tested, tested.select("b").parent());
+		assertEquals("{c=3}", tested.top().select("a", "b").toMap().toString());
+		assertEquals(0, tested.select("x").size());
+		assertFalse(tested.select("x").iterator().hasNext());
+		assertEquals(8, tested.top().size());
+	}
+
+	@Test
+	public void testDirectChildren() {
+		Properties tested = createProperties();
+		assertEquals("{b=2, b-c=4, bc=5}", new TreeMap<String, String>(tested.select("a").toDirectChildrenMap()).toString());
+		assertEquals("{a=1, b=8}", new TreeMap<String, String>(tested.toDirectChildrenMap()).toString());
+		assertEquals("{}", tested.select("a", "d", "e").toDirectChildrenMap().toString());
+	}
+
+	@Test
+	public void testModificationsUpdateIndex() {
+		Properties tested = createProperties();
+		Properties selected = tested.select("a", "d");
+		selected.setProperty("f", "9");
+		assertEquals("[e, f]", keys(selected).toString());
+		tested.removeProperty("a.d.e");
+		assertEquals("[f]", keys(selected).toString());
+
+		for (Iterator<String> i = tested.select("a").iterator(); i.hasNext(); )
+			if (i.next().startsWith("b")) i.remove();
+		assertEquals("[d.f]", keys(tested.select("a")).toString());
+		assertNull(tested.getProperty("a.b"));
+		assertEquals(4, tested.size());
+	}
+
+	@Test
+	public void testCopyOnWriteFileProperties() throws IOException {
+		File file = File.createTempFile("properties-test", ".properties");
+		file.deleteOnExit();
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+		try {
+			out.write("a.b = 1\na.c = 2\nd = 3\n");
+		} finally {
+			out.close();
+		}
+
+		Properties tested = new Properties(file, "ISO-8859-1");
+		Iterator<String> snapshot = tested.select("a").iterator();
+
+		Map<String, String> update = new HashMap<String, String>();
+		update.put("b", "10");
+		update.put("e", "5");
+		assertEquals("{b=1}", tested.select("a").setAll(update).toString());
+		assertEquals("10", tested.getProperty("a.b"));
+		assertEquals("3", tested.select("a").parent().getProperty("d"));
+		assertEquals("[b, c, e]", keys(tested.select("a")).toString());
+
+		assertEquals("b", snapshot.next());
+		assertEquals("c", snapshot.next());
+		assertFalse(snapshot.hasNext());
+
+		assertEquals("3", tested.removeProperty("d"));
+		assertNull(tested.getProperty("d"));
+		assertEquals(3, tested.size());
+	}
+
+	@Test
+	public void testReadFileMatchesJavaProperties() throws IOException {
+		String[] contents = {
+				"# comment\n! other comment\n  \n a = 1 \nb:2\nc 3\nd\\ e=4\\\n   5\\\r\n6\r\n"
+				+ "f\\=g = \\u0041\\t\\x\nempty=\n  h   \n i \\\n = j\n\u00e9=\u00e8\nlast=7\\",
+				"#\n\\\r\t\n#ff",
+				"\\\n#x",
+				"\\\r\n  \\\n\n!x\n\\\ny=z",
+				"a=1\n\\\n" };
+		for (String content : contents) {
+			for (String charset : new String[] { "ISO-8859-1", "UTF-8" }) {
+				File file = File.createTempFile("properties-test", ".properties");
+				file.deleteOnExit();
+				Writer out = new OutputStreamWriter(new FileOutputStream(file), charset);
+				try {
+					out.write(content);
+				} finally {
+					out.close();
+				}
+				assertEquals(content, loadJavaProperties(file, charset), new TreeMap<String, String>(new Properties(file, charset).toMap()));
+			}
+		}
+	}
+
+	@Test
+	public void testMalformedBytesAreReplaced() throws IOException {
+		File file = File.createTempFile("properties-test", ".properties");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[] { 'a', '=', (byte) 0xff, 'b', '\n', 'c', '=', (byte) 0xc3, (byte) 0xa9 });
+		} finally {
+			out.close();
+		}
+		assertEquals(loadJavaProperties(file, "UTF-8"), new TreeMap<String, String>(new Properties(file, "UTF-8").toMap()));
+	}
+
+	private static Map<Object, Object> loadJavaProperties(File file, String charset) throws IOException {
+		java.util.Properties result = new java.util.Properties();
+		Reader in = new InputStreamReader(new FileInputStream(file), charset);
+		try {
+			result.load(in);
+		} finally {
+			in.close();
+		}
+		return new TreeMap<Object, Object>(result);
+	}
+}
@@ -0,0 +1,72 @@
+package com.profiprog.configinject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.profiprog.configinject.ChangeableVariableSource.VariablesChangeHandler;
+import com.profiprog.configinject.util.MapParser;
+
+public class PropertyFileVariableSourceTest {
+
+	private static void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("ISO-8859-1"));
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String sorted(VariableChanges changes) {
+		return "added=" + new TreeSet<String>(changes.getAdded()) + ", removed=" + new TreeSet<String>(changes.getRemoved())
+				+ ", changed=" + new TreeSet<String>(changes.getChanged());
+	}
+
+	@Test
+	public void testDiff() {
+		VariableChanges tested = VariableChanges.diff(MapParser.parseMap("a:1, b:2, c:3"), MapParser.parseMap("a:1, b:5, d:4"));
+		assertEquals("added=[d], removed=[c], changed=[b]", sorted(tested));
+		assertTrue(tested.affects("c"));
+		assertFalse(tested.affects("a"));
+		assertTrue(VariableChanges.diff(MapParser.parseMap("a:1"), MapParser.parseMap("a:1")).isEmpty());
+	}
+
+	@Test
+	public void testReloadNotifiesChangedVariables() throws IOException {
+		File file = File.createTempFile("property-source-test", ".properties");
+		file.deleteOnExit();
+
+		final List<String> notifications = new ArrayList<String>();
+		PropertyFileVariableSource tested = new PropertyFileVariableSource();
+		tested.setVariableSourceChangeHandler(new VariablesChangeHandler() {
+			@Override
+			public void notifyVariableSourceChange(ChangeableVariableSource changedSource) {
+				notifications.add("source");
+			}
+
+			@Override
+			public void notifyVariablesChange(ChangeableVariableSource changedSource, VariableChanges changes) {
+				notifications.add(sorted(changes));
+			}
+		});
+
+		write(file, "a=1\nb=2\n");
+		tested.loadFile(file);
+		write(file, "b=2\na=1\n");
+		tested.loadFile(file);
+		write(file, "a=1\nb=3\nc=4\n");
+		tested.loadFile(file);
+
+		assertEquals("[added=[a, b], removed=[], changed=[], added=[c], removed=[], changed=[b]]", notifications.toString());
+	}
+}
@@ -0,0 +1,83 @@
+package com.profiprog.configinject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+
+import org.junit.Test;
+
+import com.profiprog.configinject.util.MapParser;
+
+public class ServletContextVariableSourceTest {
+
+	private final List<String> calls = new ArrayList<String>();
+
+	private final ServletContext servletContext = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					calls.add(method.getName() + (args == null ? "" : Arrays.toString(args)));
+					if (method.getName().equals("getContextPath")) return "/app";
+					if (method.getName().equals("getInitParameterNames")) return Collections.enumeration(Arrays.asList("x", "x.y"));
+					if (method.getName().equals("getInitParameter")) return "p-" + args[0];
+					if (method.getName().equals("getMimeType")) return "m-" + args[0];
+					if (method.getName().equals("getAttribute")) return "a-" + args[0];
+					return null;
+				}
+			});
+
+	@Test
+	public void testStandardNames() {
+		ServletContextVariableSource tested = new ServletContextVariableSource(servletContext);
+		assertEquals("/app", tested.getRawValue("contextPath"));
+		assertEquals("p-x.y", tested.getRawValue("context.initParam.x.y"));
+		assertEquals("p-x.y", tested.getRawValue("context.initParam.x.y"));
+		assertEquals("a-x", tested.getRawValue("context.attribute.x"));
+		assertEquals("a-x", tested.getRawValue("context.attribute.x"));
+		assertNull(tested.getRawValue("context.unknown.x"));
+		assertNull(tested.getRawValue("other.name"));
+		assertNull(tested.getRawValue("name"));
+		assertEquals("[getContextPath, getInitParameterNames, getInitParameter[x], getInitParameter[x.y], getAttribute[x], getAttribute[x]]", calls.toString());
+
+		assertFalse(tested.isCacheable("context.attribute.x"));
+		assertTrue(tested.isCacheable("context.initParam.x"));
+	}
+
+	@Test
+	public void testOnlyInitParametersAreCached() {
+		ServletContextVariableSource tested = new ServletContextVariableSource(servletContext);
+		assertEquals("p-x", tested.getRawValue("context.initParam.x"));
+		assertNull(tested.getRawValue("context.initParam.unknown"));
+		assertNull(tested.getRawValue("context.initParam.unknown"));
+		assertEquals("m-a.txt", tested.getRawValue("context.mimeType.a.txt"));
+		assertEquals("m-a.txt", tested.getRawValue("context.mimeType.a.txt"));
+		assertEquals("[getInitParameterNames, getInitParameter[x], getInitParameter[x.y], getMimeType[a.txt], getMimeType[a.txt]]", calls.toString());
+	}
+
+	@Test
+	public void testMapping() {
+		ServletContextVariableSource tested = new ServletContextVariableSource(servletContext);
+		tested.setMapping(MapParser.parseMap("servletContext:context, init:initParam, path:contextPath, context:none"));
+		assertEquals("/app", tested.getRawValue("path"));
+		assertEquals("/app", tested.getRawValue("contextPath"));
+		assertEquals("p-x", tested.getRawValue("servletContext.init.x"));
+		assertEquals("p-x", tested.getRawValue("servletContext.initParam.x"));
+		assertNull(tested.getRawValue("context.initParam.x"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingSelector() {
+		new ServletContextVariableSource(servletContext).getRawValue("context.initParam");
+	}
+}
@@ -1,10 +1,33 @@
 package com.profiprog.configinject;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
+import com.profiprog.configinject.ChangeableVariableSource.VariableSourceChangeHandler;
+import com.profiprog.configinject.util.MapParser;
+
 
 public class VariableResolverTest {
 
@@ -54,4 +77,297 @@ public class VariableResolverTest {
 			assertEquals("Circular substitution a <- b* <- c <- d <- e <- b", e.getMessage());
 		}
 	}
+
+	@Test
+	public void testDeepSubstitution() {
+		Map<String, String> values = new HashMap<String, String>();
+		for (int i = 0; i < 40; i++) values.put("v" + i, "${v" + (i + 1) + "}");
+		values.put("v40", "end");
+		VariableResolver tested = new VariableResolver(new MapVariableSource(values));
+		assertEquals("end", tested.resolveStringValue("$v0"));
+
+		values.put("v40", "$v20");
+		try {
+			tested.resolveStringValue("$v30");
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("Circular substitution v30* <- v31 <- v32 <- v33 <- v34 <- v35 <- v36 <- v37 <- v38 <- v39 <- v40 <- "
+					+ "v20 <- v21 <- v22 <- v23 <- v24 <- v25 <- v26 <- v27 <- v28 <- v29 <- v30", e.getMessage());
+		}
+		assertEquals("end", new VariableResolver(new MapVariableSource("a:$b, b:end")).resolveStringValue("$a"));
+	}
+
+	@Test
+	public void testEvaluationIsReusedAndHoldsOnlyJdkTypes() throws Exception {
+		final VariableResolver tested = new VariableResolver(new MapVariableSource("a:$b,b:1"));
+		Field field = VariableResolver.class.getDeclaredField("evaluatingDynamicProperties");
+		field.setAccessible(true);
+		ThreadLocal<?> evaluation = (ThreadLocal<?>) field.get(tested);
+
+		Object initial = evaluation.get();
+		assertEquals("1", tested.resolveStringValue("$a"));
+		try { tested.resolveStringValue("$c"); fail(); } catch (IllegalStateException expected) {}
+		tested.resolveInBatch(new Runnable() {
+			@Override
+			public void run() {
+				assertEquals("1", tested.resolveStringValue("$a"));
+			}
+		});
+		assertSame("evaluation isn't reused", initial, evaluation.get());
+
+		// thread local of pooled thread mustn't pin class loader of library
+		assertEquals(null, initial.getClass().getClassLoader());
+		for (Object slot : (Object[]) initial)
+			if (slot != null) assertEquals(slot.getClass().getName(), null, slot.getClass().getClassLoader());
+	}
+
+	@Test
+	public void testCompiledTemplateIsReusedWithCurrentValues() {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("a", "1");
+		VariableResolver tested = new VariableResolver(new MapVariableSource(values));
+		assertEquals("x1y$b", tested.resolveStringValue("x${a}y$$${b:b}"));
+		values.put("a", "2");
+		values.put("b", "B");
+		assertEquals("x2y$B", tested.resolveStringValue("x${a}y$$${b:b}"));
+	}
+
+	@Test
+	public void testDisabledTemplateCache() {
+		VariableResolver tested = new VariableResolver(new MapVariableSource("a:b,b:1"));
+		tested.setTemplateCacheSize(0);
+		assertEquals("b 1 $a", tested.resolveStringValue("$a ${$a} $$a"));
+		assertEquals("b 1 $a", tested.resolveStringValue("$a ${$a} $$a"));
+	}
+
+	@Test
+	public void testValueCachingInvalidatedByChange() {
+		final Map<String, String> values = new HashMap<String, String>();
+		values.put("a", "$b");
+		values.put("b", "1");
+		final VariableSourceChangeHandler[] handler = new VariableSourceChangeHandler[1];
+		ChangeableVariableSource source = new ChangeableVariableSource() {
+			@Override
+			public String getRawValue(String variableName) throws NullPointerException {
+				return values.get(variableName);
+			}
+			@Override
+			public void setVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler) {
+				handler[0] = changeHandler;
+			}
+		};
+		VariableResolver tested = new VariableResolver(source);
+		tested.setValueCaching(true);
+		assertEquals("1", tested.resolveValue("a"));
+		values.put("b", "2");
+		assertEquals("1", tested.resolveValue("a"));
+		handler[0].notifyVariableSourceChange(source);
+		assertEquals("2", tested.resolveValue("a"));
+	}
+
+	@Test
+	public void testSharedSourceKeepsHandlerOfResolverWhichNeedsIt() {
+		final VariableSourceChangeHandler[] handler = new VariableSourceChangeHandler[1];
+		final Map<String, String> values = new HashMap<String, String>();
+		values.put("a", "1");
+		ChangeableVariableSource source = new ChangeableVariableSource() {
+			@Override
+			public String getRawValue(String variableName) throws NullPointerException {
+				return values.get(variableName);
+			}
+			@Override
+			public void setVariableSourceChangeHandler(VariableSourceChangeHandler changeHandler) {
+				handler[0] = changeHandler;
+			}
+		};
+		VariableResolver caching = new VariableResolver(source);
+		caching.setValueCaching(true);
+		assertEquals("1", caching.resolveValue("a"));
+		VariableSourceChangeHandler registered = handler[0];
+
+		VariableResolver plain = new VariableResolver(source);
+		assertEquals("1", plain.resolveValue("a"));
+		assertSame(registered, handler[0]);
+
+		values.put("a", "2");
+		handler[0].notifyVariableSourceChange(source);
+		assertEquals("2", caching.resolveValue("a"));
+	}
+
+	@Test
+	public void testValueCachingPollsFileSource() throws IOException {
+		File file = File.createTempFile("variable-resolver-test", ".properties");
+		file.deleteOnExit();
+		write(file, "a=${b}\nb=1\n");
+		PropertyFileVariableSource source = new PropertyFileVariableSource();
+		source.setPropertyFileName(file.getPath());
+		source.setCheckPeriodInSeconds(0);
+		VariableResolver tested = new VariableResolver(source);
+		tested.setValueCaching(true);
+		assertEquals("1", tested.resolveValue("a"));
+		assertEquals("1", tested.resolveValue("a"));
+
+		write(file, "a=${b}\nb=2\n");
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		assertEquals("2", tested.resolveValue("a"));
+	}
+
+	private static void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("ISO-8859-1"));
+		} finally {
+			out.close();
+		}
+	}
+
+	@Test
+	public void testValueCachingSkipsUncacheableSource() {
+		final int[] counter = new int[1];
+		VariableResolver tested = new VariableResolver(new UncacheableVariableSource() {
+			@Override
+			public String getRawValue(String variableName) throws NullPointerException {
+				return "counter".equals(variableName) ? String.valueOf(++counter[0]) : null;
+			}
+			@Override
+			public boolean isCacheable(String variableName) {
+				return !"counter".equals(variableName);
+			}
+		}, new MapVariableSource("a:x$counter, b:y"));
+		tested.setValueCaching(true);
+		assertEquals("x1", tested.resolveValue("a"));
+		assertEquals("x2", tested.resolveValue("a"));
+		assertEquals("y", tested.resolveValue("b"));
+		assertEquals("d", tested.resolveValue("c", "d"));
+	}
+
+	private static InicializableVariableSource barrierSource(final CyclicBarrier barrier, final String name, final String expression) {
+		final Map<String, String> values = new HashMap<String, String>();
+		return new InicializableVariableSource() {
+			@Override
+			public void initSource(VariableResolver variables) throws IOException {
+				try {
+					barrier.await(10, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+				values.put(name, variables.resolveStringValue(expression));
+			}
+
+			@Override
+			public String getRawValue(String variableName) {
+				return values.get(variableName);
+			}
+		};
+	}
+
+	@Test
+	public void testParallelInitialization() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// both sources wait for each other, so they have to be initialized concurrently
+			CyclicBarrier barrier = new CyclicBarrier(2);
+			VariableResolver tested = new VariableResolver(executor,
+					barrierSource(barrier, "a", "${b}-${c}"),
+					new MapVariableSource("c:0"),
+					barrierSource(barrier, "b", "${c:1}"),
+					new MapVariableSource("c:2"));
+			assertEquals("2-0", tested.resolveStringValue("$a"));
+			assertEquals("2", tested.resolveStringValue("$b"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testInstrumentation() {
+		JmxConfigInstrumentation instrumentation = new JmxConfigInstrumentation();
+		VariableResolver tested = new VariableResolver(new MapVariableSource("a:${b}, c:${c}"), new MapVariableSource("b:1"));
+		tested.setInstrumentation(instrumentation);
+		tested.setValueCaching(true);
+		assertEquals("1 1", tested.resolveStringValue("$a $a"));
+		try {
+			tested.resolveStringValue("$c");
+			fail();
+		} catch (IllegalStateException expected) {}
+
+		assertEquals("[a=2, b=1, c=2]", new TreeSet<String>(instrumentation.getMostResolvedVariables()).toString());
+		// b is skipped in first source by summary of its names
+		assertEquals("{1. MapVariableSource=2, 2. MapVariableSource=1}", new TreeMap<String, Long>(instrumentation.getSourceLookups()).toString());
+		assertEquals("{1. MapVariableSource=2, 2. MapVariableSource=1}", new TreeMap<String, Long>(instrumentation.getSourceHits()).toString());
+		assertEquals(1, instrumentation.getValueCacheHits());
+		assertEquals(1, instrumentation.getCircularSubstitutions());
+
+		instrumentation.reset();
+		instrumentation.setMaxTrackedVariables(1);
+		assertEquals("1 1", tested.resolveStringValue("$b $a"));
+		// a is first resolved after the limit was reached, b is resolved again only by $b (a is cached)
+		assertEquals("[b=1]", instrumentation.getMostResolvedVariables().toString());
+	}
+
+	@Test
+	public void testBatchResolution() {
+		final Map<String, Integer> lookups = new HashMap<String, Integer>();
+		final Map<String, String> values = new HashMap<String, String>();
+		for (int i = 0; i < 1000; i++) values.put("v" + i, "${shared}-" + i);
+		values.put("shared", "s");
+		VariableResolver tested = new VariableResolver(new VariableSource() {
+			@Override
+			public synchronized String getRawValue(String variableName) {
+				Integer count = lookups.get(variableName);
+				lookups.put(variableName, count == null ? 1 : count + 1);
+				return values.get(variableName);
+			}
+		});
+
+		List<String> expressions = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) expressions.add("$v" + i + "/$v" + (999 - i));
+		assertEquals("s-0/s-999", tested.resolveStringValues(expressions).get("$v0/$v999"));
+		assertEquals(Integer.valueOf(1), lookups.get("shared"));
+		assertEquals(Integer.valueOf(1), Collections.max(lookups.values()));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Map<String, String> resolved = tested.resolveStringValues(expressions, pool);
+			assertEquals("s-999/s-0", resolved.get("$v999/$v0"));
+			assertEquals(1000, resolved.size());
+		} finally {
+			pool.shutdown();
+		}
+
+		lookups.clear();
+		assertEquals(Arrays.asList("s-1", "s-1", "a"), tested.resolveItems(Arrays.asList("$v1", "$v1", "a")));
+		assertEquals(Integer.valueOf(1), lookups.get("v1"));
+	}
+
+	@Test
+	public void testSummarizedSourcesAreSkipped() {
+		final List<String> lookups = new ArrayList<String>();
+		final Map<String, String> values = MapParser.parseMap("a:1, b:2");
+		VariableResolver tested = new VariableResolver(new SummarizedVariableSource() {
+			@Override
+			public String getRawValue(String variableName) {
+				lookups.add(variableName);
+				return values.get(variableName);
+			}
+
+			@Override
+			public VariableNamesSummary getVariableNamesSummary() {
+				return VariableNamesSummary.of(values.keySet());
+			}
+		}, new MapVariableSource("c:3"));
+
+		assertEquals("1 2 3", tested.resolveStringValue("$a $b $c"));
+		assertEquals("[a, b]", lookups.toString());
+
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 10000; i++) names.add("name" + i);
+		VariableNamesSummary summary = VariableNamesSummary.of(names);
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			assertTrue("name" + i + " missing in summary", summary.mightContain("name" + i));
+			if (summary.mightContain("other" + i)) falsePositives++;
+		}
+		assertTrue("too many false positives: " + falsePositives + " of 10000", falsePositives < 1000);
+	}
 }
@@ -0,0 +1,88 @@
+package com.profiprog.configinject;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+
+public class VariablesResolverPlaceholderConfigurerTest {
+
+	private final VariableResolver variables = new VariableResolver(new MapVariableSource("a:1, b:${a}2, c:3"));
+
+	private static GenericBeanDefinition definition(String className, String value) {
+		GenericBeanDefinition definition = new GenericBeanDefinition();
+		if (className != null) definition.setBeanClassName(className);
+		definition.getPropertyValues().add("value", value);
+		return definition;
+	}
+
+	private static Object value(DefaultListableBeanFactory beanFactory, String beanName) {
+		return beanFactory.getBeanDefinition(beanName).getPropertyValues().getPropertyValue("value").getValue();
+	}
+
+	@Test
+	public void testVariableSourcesAreSkipped() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("source", definition(MapVariableSource.class.getName(), "${a}"));
+		GenericBeanDefinition loadedSource = definition(null, "${a}");
+		loadedSource.setBeanClass(PropertiesVariableSource.class);
+		beanFactory.registerBeanDefinition("loadedSource", loadedSource);
+		beanFactory.registerBeanDefinition("bean", definition(ConfigProvider.class.getName(), "${b}"));
+		beanFactory.registerBeanDefinition("withoutClass", definition(null, "${c}"));
+
+		new VariablesResolverPlaceholderConfigurer(variables).postProcessBeanFactory(beanFactory);
+
+		assertEquals("${a}", value(beanFactory, "source"));
+		assertEquals("${a}", value(beanFactory, "loadedSource"));
+		assertEquals("12", value(beanFactory, "bean"));
+		assertEquals("3", value(beanFactory, "withoutClass"));
+	}
+
+	@Test
+	public void testParallelProcessingMatchesSerial() {
+		DefaultListableBeanFactory serial = new DefaultListableBeanFactory();
+		DefaultListableBeanFactory parallel = new DefaultListableBeanFactory();
+		for (int i = 0; i < 100; i++) {
+			String className = i % 10 == 0 ? MapVariableSource.class.getName() : i % 7 == 0 ? null : Object.class.getName();
+			String value = "bean" + i + ":${" + "abc".charAt(i % 3) + "}$" + "abc".charAt(i % 2);
+			serial.registerBeanDefinition("bean" + i, definition(className, value));
+			parallel.registerBeanDefinition("bean" + i, definition(className, value));
+		}
+
+		new VariablesResolverPlaceholderConfigurer(variables).postProcessBeanFactory(serial);
+		VariablesResolverPlaceholderConfigurer tested = new VariablesResolverPlaceholderConfigurer(variables);
+		tested.setParallelism(4);
+		tested.postProcessBeanFactory(parallel);
+
+		List<Object> expected = new ArrayList<Object>();
+		List<Object> actual = new ArrayList<Object>();
+		for (String beanName : serial.getBeanDefinitionNames()) {
+			expected.add(value(serial, beanName));
+			actual.add(value(parallel, beanName));
+		}
+		assertEquals(expected, actual);
+		assertEquals("bean1:1212", value(parallel, "bean1"));
+		assertEquals("bean10:${b}$a", value(parallel, "bean10"));
+		assertEquals("bean14:31", value(parallel, "bean14"));
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void testMissingBeanClassFails() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("bean", definition("com.profiprog.configinject.Missing", "${a}"));
+		new VariablesResolverPlaceholderConfigurer(variables).postProcessBeanFactory(beanFactory);
+	}
+
+	@Test
+	public void testUnresolvableValueIsLeftUnchanged() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("bean", definition(Object.class.getName(), "${x}"));
+		new VariablesResolverPlaceholderConfigurer(variables).postProcessBeanFactory(beanFactory);
+		assertEquals("${x}", value(beanFactory, "bean"));
+	}
+}
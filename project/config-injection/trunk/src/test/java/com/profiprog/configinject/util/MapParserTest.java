@@ -1,6 +1,12 @@
 package com.profiprog.configinject.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -43,4 +49,59 @@ public class MapParserTest {
 	public void testParseQuotes() {
 		assertEquals("{a=45,0, b=45,0, c=45,0',, d=' \"}", MapParser.parseMap("a:'45,0',b:\"45,0\",c:\"45,0',\",d:' \"").toString());
 	}
+
+	@Test
+	public void testStreamingMatchesParseMap() {
+		String[] inputs = { "", ",,,,,", " , , ", " a,b , c ,d,a,", " '', , ", " a : 5,b:1 , c:8  ,d: 9,a: 0 ,",
+				" a :' 5' ,'b ':1 , c:8  ,d: 9,' a ': 0 ,", "a:'45,0',b:45,0,c:45\\,0,d:'45\\,0'",
+				"a:'45,0',b:\"45,0\",c:\"45,0',\"", "a:b:c, 'x'y'z':'1' ", ": , ''':'" };
+		for (String input : inputs) assertEquals(input, MapParser.parseMap(input), parse(input));
+	}
+
+	@Test
+	public void testStreamingEscaping() {
+		assertEquals("{a\\b=c\\d, x= y}", parse("a\\\\b:c\\\\d, x:\\ y").toString());
+		assertEquals("{'a=b'}", parse("\\'a:b\\'").toString());
+	}
+
+	@Test
+	public void testStreamingFromReader() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 5000; i++) input.append("key").append(i).append(':').append("'value, ").append(i).append("',");
+		final Map<String, String> result = new LinkedHashMap<String, String>();
+		MapParser.parse(new StringReader(input.toString()), new MapParser.EntryHandler() {
+			@Override
+			public void entry(String key, String value) {
+				result.put(key, value);
+			}
+		});
+		assertEquals(MapParser.parseMap(input.toString()), result);
+		assertEquals("value, 4999", result.get("key4999"));
+	}
+
+	@Test
+	public void testStreamingErrorPositions() {
+		assertErrorPosition("a:'45,0',d:' \"", 11);
+		assertErrorPosition("a:b,c\\", 5);
+	}
+
+	private static void assertErrorPosition(String input, int position) {
+		try {
+			parse(input);
+			fail("Expected error in " + input);
+		} catch (MapParser.MapParseException e) {
+			assertEquals(position, e.getPosition());
+		}
+	}
+
+	private static Map<String, String> parse(String input) {
+		final Map<String, String> result = new LinkedHashMap<String, String>();
+		MapParser.parse(input, new MapParser.EntryHandler() {
+			@Override
+			public void entry(String key, String value) {
+				result.put(key, value);
+			}
+		});
+		return result;
+	}
 }
@@ -20,6 +20,15 @@ public abstract class AbstractEvent<H extends EventHandler, S> {
 		return fireTime;
 	}
 	
+	/**
+	 * Events with equal key are dispatched in order of firing. By default events of the same type are ordered,
+	 * {@code null} means that event may be dispatched in parallel with any other event.
+	 * @see EventDispatcher#setWorkerCount(int)
+	 */
+	public Object getOrderingKey() {
+		return getClass();
+	}
+
 	public HandlerRegistration getRegistration() {
 		return registration;
 	}
@@ -0,0 +1,15 @@
+package com.profiprog.jses;
+
+/**
+ * Notified when dispatching of fired event is completed.
+ * @see EventDispatcher#setDispatchCallback(DispatchCallback)
+ */
+public interface DispatchCallback {
+
+	/**
+	 * Called after all handlers were invoked or the event was {@link AbstractEvent#chancel() cancelled}.
+	 * @param failure exception thrown by handler or {@link java.util.concurrent.RejectedExecutionException}
+	 * of handler executor, {@code null} if dispatching succeeded
+	 */
+	void eventDispatched(AbstractEvent<?, ?> event, Throwable failure);
+}
@@ -1,75 +1,361 @@
 package com.profiprog.jses;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class EventDispatcher implements Runnable {
-	
-	private final AtomicReference<Thread> thread = new AtomicReference<Thread>();
-	
-	private final ArrayBlockingQueue<AbstractEvent<?,?>> queue = new ArrayBlockingQueue<AbstractEvent<?,?>>(50);
-	
-	private final ConcurrentMap<Class<?>, Collection<HandlerRegistration>> listeners = new ConcurrentHashMap<Class<?>, Collection<HandlerRegistration>>();
-	
+
+	/**
+	 * Period of checking whether dispatcher blocked by {@link OverflowPolicy#BLOCK} wasn't stopped.
+	 */
+	private static final long BLOCK_CHECK_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final AtomicReference<Worker[]> workers = new AtomicReference<Worker[]>();
+
+	private final AtomicInteger nextWorker = new AtomicInteger();
+
+	private final AtomicLong rejectedEvents = new AtomicLong();
+
+	private final ConcurrentMap<Class<?>, HandlerList> listeners = new ConcurrentHashMap<Class<?>, HandlerList>();
+
+	/**
+	 * Registrations of event class and its superclasses, most specific type first. Cleared when handler of new type is added.
+	 */
+	private final ConcurrentMap<Class<?>, HandlerList[]> dispatchTables = new ConcurrentHashMap<Class<?>, HandlerList[]>();
+
+	private final AtomicInteger registryVersion = new AtomicInteger();
+
+	private int workerCount = 1;
+
+	private int queueCapacity = 50;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+	private long blockTimeout;
+
+	private Executor handlerExecutor;
+
+	private Semaphore eventPermits;
+
+	private DispatchCallback dispatchCallback;
+
+	/**
+	 * Marks threads dispatching events taken from queues, they must not wait for space in queues.
+	 */
+	private final ThreadLocal<Boolean> dispatchingThread = new ThreadLocal<Boolean>();
+
+	/**
+	 * Count of threads dispatching fired events. Events with equal {@link AbstractEvent#getOrderingKey() ordering key}
+	 * are dispatched by the same thread in order of firing. Optional, default is {@code 1}.
+	 * <p>Takes effect on next {@link #start()}.
+	 */
+	public void setWorkerCount(int workerCount) {
+		if (workerCount < 1) throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * Capacity of queue of each worker thread. Optional, default is {@code 50}.
+	 * <p>Takes effect on next {@link #start()}.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Optional, default is {@link OverflowPolicy#DROP_NEWEST}.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		if (overflowPolicy == null) throw new IllegalArgumentException("Overflow policy is required");
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Maximal time in milliseconds {@link OverflowPolicy#BLOCK} waits for space in full queue.
+	 * Optional, default {@code 0} means waiting without limit. Waiting ends also when dispatcher
+	 * is stopped, then event is fired again (so it's dispatched synchronously if dispatcher isn't started).
+	 */
+	public void setBlockTimeout(long blockTimeout) {
+		this.blockTimeout = blockTimeout;
+	}
+
+	/**
+	 * Executor invoking handlers of events taken from queue. Each event is one task, so its handlers
+	 * are invoked sequentially and {@link AbstractEvent#chancel() cancelling} works as usual,
+	 * but events are not dispatched in order of firing anymore. Optional, by default handlers
+	 * are invoked by worker threads.
+	 * <p>Suitable for handlers blocked by I/O, on Java 21 e.g. {@code Executors.newVirtualThreadPerTaskExecutor()}.
+	 * @see #setMaxConcurrentEvents(int)
+	 */
+	public void setHandlerExecutor(Executor handlerExecutor) {
+		this.handlerExecutor = handlerExecutor;
+	}
+
+	/**
+	 * Maximal count of events dispatched by {@link #setHandlerExecutor(Executor) handler executor} at once,
+	 * workers wait for completion of some event when the limit is reached. Optional, unlimited by default.
+	 */
+	public void setMaxConcurrentEvents(int maxConcurrentEvents) {
+		if (maxConcurrentEvents < 1) throw new IllegalArgumentException("Count of events must be positive: " + maxConcurrentEvents);
+		this.eventPermits = new Semaphore(maxConcurrentEvents);
+	}
+
+	/**
+	 * Optional callback notified about completion of each dispatched event.
+	 */
+	public void setDispatchCallback(DispatchCallback dispatchCallback) {
+		this.dispatchCallback = dispatchCallback;
+	}
+
+	/**
+	 * @return count of events waiting for dispatching
+	 */
+	public int getQueueSize() {
+		Worker[] workers = this.workers.get();
+		int size = 0;
+		if (workers != null) {
+			for (Worker worker : workers) size += worker.queue.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return count of events which were not dispatched because of full queue
+	 * (including events discarded by {@link OverflowPolicy#DROP_OLDEST})
+	 * or because {@link #setHandlerExecutor(Executor) handler executor} rejected them
+	 */
+	public long getRejectedEventCount() {
+		return rejectedEvents.get();
+	}
+
+	/**
+	 * @return {@code false} if the event was rejected because of full queue
+	 * @see #setOverflowPolicy(OverflowPolicy)
+	 */
 	public boolean fireEvent(AbstractEvent<? extends EventHandler, ?> event) {
-		if (isRunning()) return queue.offer(event);
-		processEvent(event);
+		Worker[] workers = this.workers.get();
+		if (workers != null) return enqueue(workers, workers[partition(event, workers.length)].queue, event);
+		dispatch(event);
 		return true;
 	}
 
+	private boolean enqueue(Worker[] workers, ArrayBlockingQueue<AbstractEvent<?,?>> queue, AbstractEvent<?, ?> event) {
+		if (queue.offer(event)) return true;
+		switch (overflowPolicy) {
+			case BLOCK:
+				if (dispatchingThread.get() != null) {
+					// waiting handler could block the thread draining the queue
+					dispatch(event);
+					return true;
+				}
+				try {
+					long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+					while (true) {
+						long wait = BLOCK_CHECK_PERIOD;
+						if (blockTimeout > 0) {
+							wait = Math.min(wait, deadline - System.nanoTime());
+							if (wait <= 0) break;
+						}
+						if (queue.offer(event, wait, TimeUnit.NANOSECONDS)) return true;
+						// queues of stopped dispatcher aren't drained anymore
+						if (this.workers.get() != workers) return fireEvent(event);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				break;
+			case CALLER_RUNS:
+				dispatch(event);
+				return true;
+			case DROP_OLDEST:
+				do {
+					if (queue.poll() != null) rejectedEvents.incrementAndGet();
+				} while (!queue.offer(event));
+				return true;
+			case DROP_NEWEST:
+				break;
+		}
+		rejectedEvents.incrementAndGet();
+		return false;
+	}
+
+	private int partition(AbstractEvent<?, ?> event, int partitions) {
+		if (partitions == 1) return 0;
+		Object key = event.getOrderingKey();
+		int hash = key == null ? nextWorker.getAndIncrement() : key.hashCode() ^ (key.hashCode() >>> 16);
+		return (hash & Integer.MAX_VALUE) % partitions;
+	}
+
 	public <T extends EventHandler> HandlerRegistration addHandler(Class<? extends AbstractEvent<T,?>> eventType, T handler) {
-		Collection<HandlerRegistration> l = listeners.get(eventType);
+		HandlerList l = listeners.get(eventType);
 		if (l == null) {
-			l = new ConcurrentLinkedQueue<HandlerRegistration>();
-			Collection<HandlerRegistration> a = listeners.putIfAbsent(eventType, l);
+			l = new HandlerList();
+			HandlerList a = listeners.putIfAbsent(eventType, l);
 			if (a != null) l = a;
+			else {
+				registryVersion.incrementAndGet();
+				dispatchTables.clear();
+			}
 		}
 		HandlerRegistration result = new HandlerRegistration(handler, l);
 		l.add(result);
 		return result;
 	}
-	
-	@Override
-	public void run() {
+
+	private void dispatch(AbstractEvent<?, ?> event) {
 		try {
-			Thread currentThread = Thread.currentThread();
-			while (thread.get() == currentThread) {
-				processEvent(queue.take());
-			}
-		} catch (InterruptedException ignore) {}
+			processEvent(event);
+		} catch (RuntimeException e) {
+			if (dispatchCallback != null) dispatchCallback.eventDispatched(event, e);
+			throw e;
+		}
+		if (dispatchCallback != null) dispatchCallback.eventDispatched(event, null);
+	}
+
+	private void submit(AbstractEvent<?, ?> event) throws InterruptedException {
+		Semaphore permits = eventPermits;
+		if (permits != null) permits.acquire();
+		try {
+			handlerExecutor.execute(new EventTask(event, permits));
+		} catch (RejectedExecutionException e) {
+			if (permits != null) permits.release();
+			rejectedEvents.incrementAndGet();
+			if (dispatchCallback != null) dispatchCallback.eventDispatched(event, e);
+		}
 	}
 
 	private void processEvent(AbstractEvent<? extends EventHandler, ?> event) {
-		Collection<HandlerRegistration> registrations;
-		for (Class<?> type = event.getClass(); !AbstractEvent.class.equals(type); type = type.getSuperclass()) {
-			if ((registrations = listeners.get(type)) != null) {
-				for (HandlerRegistration r : registrations) {
-					event.dispatch(r);
-					if (event.isCancelled()) return;
-				}
+		for (HandlerList registrations : dispatchTable(event.getClass())) {
+			for (HandlerRegistration r : registrations.get()) {
+				event.dispatch(r);
+				if (event.isCancelled()) return;
 			}
 		}
 	}
-	
+
+	private HandlerList[] dispatchTable(Class<?> eventType) {
+		HandlerList[] table = dispatchTables.get(eventType);
+		if (table == null) {
+			int version = registryVersion.get();
+			table = createDispatchTable(eventType);
+			dispatchTables.put(eventType, table);
+			// handler type added meanwhile may be missing in the table
+			if (version != registryVersion.get()) dispatchTables.remove(eventType, table);
+		}
+		return table;
+	}
+
+	private HandlerList[] createDispatchTable(Class<?> eventType) {
+		List<HandlerList> table = new ArrayList<HandlerList>();
+		for (Class<?> type = eventType; !AbstractEvent.class.equals(type); type = type.getSuperclass()) {
+			HandlerList registrations = listeners.get(type);
+			if (registrations != null) table.add(registrations);
+		}
+		return table.toArray(new HandlerList[table.size()]);
+	}
+
+	/**
+	 * @deprecated events are dispatched by threads started by {@link #start()}, this method
+	 * only returns immediately (as it did when it wasn't called by dispatching thread)
+	 */
+	@Deprecated
+	@Override
+	public void run() {}
+
 	public void start() {
-		Thread thread = new Thread(this);
-		thread.setDaemon(true);
-		thread.setName("event-dispacher");
-		if (this.thread.compareAndSet(null, thread)) {
-			thread.start();
+		Worker[] workers = new Worker[workerCount];
+		for (int i = 0; i < workers.length; i++)
+			workers[i] = new Worker(workers.length == 1 ? "event-dispacher" : "event-dispacher-" + i);
+		if (this.workers.compareAndSet(null, workers)) {
+			for (Worker worker : workers) worker.thread.start();
 		}
 	}
-	
+
 	public boolean isRunning() {
-		return thread.get() != null;
+		return workers.get() != null;
 	}
-	
+
 	public void stop() {
-		Thread thread = this.thread.getAndSet(null);
-		if (thread != null) thread.interrupt();
+		Worker[] workers = this.workers.getAndSet(null);
+		if (workers != null) {
+			for (Worker worker : workers) worker.stop();
+		}
+	}
+
+	/**
+	 * Thread dispatching events of one partition.
+	 */
+	private class Worker implements Runnable {
+
+		final ArrayBlockingQueue<AbstractEvent<?,?>> queue = new ArrayBlockingQueue<AbstractEvent<?,?>>(queueCapacity);
+		final Thread thread;
+		volatile boolean stopped;
+
+		Worker(String name) {
+			thread = new Thread(this);
+			thread.setDaemon(true);
+			thread.setName(name);
+		}
+
+		@Override
+		public void run() {
+			dispatchingThread.set(Boolean.TRUE);
+			while (!stopped) {
+				try {
+					AbstractEvent<?, ?> event = queue.take();
+					if (handlerExecutor != null) submit(event);
+					else dispatch(event);
+				} catch (InterruptedException e) {
+					return;
+				} catch (RuntimeException e) {
+					// failing handler must not stop dispatching of following events
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+		}
+
+		void stop() {
+			stopped = true;
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Dispatching of one event by {@link EventDispatcher#setHandlerExecutor(Executor) handler executor}.
+	 */
+	private class EventTask implements Runnable {
+
+		private final AbstractEvent<?, ?> event;
+		private final Semaphore permits;
+
+		EventTask(AbstractEvent<?, ?> event, Semaphore permits) {
+			this.event = event;
+			this.permits = permits;
+		}
+
+		@Override
+		public void run() {
+			dispatchingThread.set(Boolean.TRUE);
+			try {
+				dispatch(event);
+			} catch (RuntimeException e) {
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			} finally {
+				dispatchingThread.remove();
+				if (permits != null) permits.release();
+			}
+		}
 	}
 }
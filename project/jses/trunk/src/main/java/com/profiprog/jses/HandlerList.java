@@ -0,0 +1,41 @@
+package com.profiprog.jses;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write array of handler registrations of one event type.
+ * Dispatching reads current array without locking, changes are serialized.
+ */
+final class HandlerList {
+
+	private static final HandlerRegistration[] EMPTY = new HandlerRegistration[0];
+
+	private volatile HandlerRegistration[] registrations = EMPTY;
+
+	HandlerRegistration[] get() {
+		return registrations;
+	}
+
+	synchronized void add(HandlerRegistration registration) {
+		HandlerRegistration[] current = registrations;
+		HandlerRegistration[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = registration;
+		registrations = updated;
+	}
+
+	synchronized boolean remove(HandlerRegistration registration) {
+		HandlerRegistration[] current = registrations;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] != registration) continue;
+			if (current.length == 1) registrations = EMPTY;
+			else {
+				HandlerRegistration[] updated = new HandlerRegistration[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, updated.length - i);
+				registrations = updated;
+			}
+			return true;
+		}
+		return false;
+	}
+}
@@ -1,15 +1,14 @@
 package com.profiprog.jses;
 
-import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class HandlerRegistration {
 	
-	private AtomicBoolean active = new AtomicBoolean(true);
-	private EventHandler listener;
-	private Collection<HandlerRegistration> register;
+	private final AtomicBoolean active = new AtomicBoolean(true);
+	private final EventHandler listener;
+	private final HandlerList register;
 	
-	HandlerRegistration(EventHandler listener, Collection<HandlerRegistration> register) {
+	HandlerRegistration(EventHandler listener, HandlerList register) {
 		this.listener = listener;
 		this.register = register;
 	}
@@ -18,11 +17,13 @@ public final class HandlerRegistration {
 		return listener;
 	}
 
+	/**
+	 * Removes handler from dispatcher, events already being dispatched skip it as inactive.
+	 * Repeated calls have no effect.
+	 */
 	public void unregister() {
-		assert register.remove(this);
-		register = null;
-		listener = null;
-		active = null;
+		active.set(false);
+		register.remove(this);
 	}
 	
 	public void suspend() {
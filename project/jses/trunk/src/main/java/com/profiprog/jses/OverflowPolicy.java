@@ -0,0 +1,31 @@
+package com.profiprog.jses;
+
+/**
+ * What {@link EventDispatcher#fireEvent(AbstractEvent)} does when queue of dispatching thread is full.
+ * @see EventDispatcher#setOverflowPolicy(OverflowPolicy)
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Waits for free space in queue at most {@link EventDispatcher#setBlockTimeout(long) block timeout},
+	 * event is rejected when time is out.
+	 * <p>Event fired by handler dispatching queued event is dispatched synchronously
+	 * like by {@link #CALLER_RUNS}, because waiting handler could block dispatching thread itself.
+	 */
+	BLOCK,
+
+	/**
+	 * Dispatches event synchronously in calling thread, so it may overtake queued events.
+	 */
+	CALLER_RUNS,
+
+	/**
+	 * Discards the oldest queued event to make space for fired event.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Rejects fired event.
+	 */
+	DROP_NEWEST
+}
@@ -0,0 +1,527 @@
+package com.profiprog.jses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class EventDispatcherTest {
+
+	public interface TestHandler extends EventHandler {
+		void handle(TestEvent event);
+	}
+
+	public static class TestEvent extends AbstractEvent<TestHandler, Integer> {
+
+		private final Object orderingKey;
+
+		public TestEvent(Integer source, Object orderingKey) {
+			super(source);
+			this.orderingKey = orderingKey;
+		}
+
+		@Override
+		public Object getOrderingKey() {
+			return orderingKey;
+		}
+
+		@Override
+		protected void dispatch(TestHandler handler) {
+			handler.handle(this);
+		}
+	}
+
+	public static class SubEvent extends TestEvent {
+		public SubEvent(Integer source) {
+			super(source, null);
+		}
+	}
+
+	private final EventDispatcher tested = new EventDispatcher();
+
+	private final List<Integer> dispatched = Collections.synchronizedList(new ArrayList<Integer>());
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch gate = new CountDownLatch(1);
+
+	@After
+	public void tearDown() {
+		tested.stop();
+	}
+
+	private static void await(CountDownLatch latch) throws InterruptedException {
+		assertTrue("events weren't dispatched in time", latch.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testSynchronousDispatchingWhenNotRunning() {
+		final List<String> calls = new ArrayList<String>();
+		tested.addHandler(SubEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				calls.add("sub" + event.getSource());
+				if (event.getSource() == 1) event.chancel();
+			}
+		});
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				calls.add("test" + event.getSource());
+			}
+		});
+
+		assertTrue(tested.fireEvent(new SubEvent(1)));
+		assertTrue(tested.fireEvent(new SubEvent(2)));
+		assertTrue(tested.fireEvent(new TestEvent(3, null)));
+		assertEquals("[sub1, sub2, test2, test3]", calls.toString());
+	}
+
+	@Test
+	public void testEventsWithEqualKeyKeepOrder() throws InterruptedException {
+		final Map<Object, List<Integer>> dispatchedByKey = new ConcurrentHashMap<Object, List<Integer>>();
+		final CountDownLatch done = new CountDownLatch(8 * 200);
+		tested.setWorkerCount(4);
+		tested.setQueueCapacity(8 * 200);
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				// all events of one key are dispatched by one thread
+				List<Integer> sources = dispatchedByKey.get(event.getOrderingKey());
+				if (sources == null) dispatchedByKey.put(event.getOrderingKey(), sources = new ArrayList<Integer>());
+				sources.add(event.getSource());
+				done.countDown();
+			}
+		});
+		tested.start();
+
+		for (int i = 0; i < 200; i++) {
+			for (int key = 0; key < 8; key++) assertTrue(tested.fireEvent(new TestEvent(i, "key" + key)));
+		}
+		await(done);
+
+		assertEquals(8, dispatchedByKey.size());
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 200; i++) expected.add(i);
+		for (List<Integer> sources : dispatchedByKey.values()) assertEquals(expected, sources);
+	}
+
+	@Test
+	public void testUnrelatedEventsAreDispatchedInParallel() throws InterruptedException {
+		final CountDownLatch second = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(2);
+		tested.setWorkerCount(2);
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				try {
+					// first event waits for second one, so they must be dispatched by different workers
+					if (event.getSource() != 1) second.countDown();
+					else if (!second.await(10, TimeUnit.SECONDS)) return;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}
+		});
+		tested.start();
+
+		// events without ordering key are distributed to workers in turn
+		tested.fireEvent(new TestEvent(1, null));
+		tested.fireEvent(new TestEvent(2, null));
+		await(done);
+	}
+
+	@Test
+	public void testFailingHandlerDoesNotStopWorker() throws InterruptedException {
+		final BlockingQueue<Throwable> reported = new LinkedBlockingQueue<Throwable>();
+		final CountDownLatch done = new CountDownLatch(1);
+		Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				reported.add(e);
+			}
+		});
+		try {
+			tested.addHandler(TestEvent.class, new TestHandler() {
+				@Override
+				public void handle(TestEvent event) {
+					if (event.getSource() == 1) throw new IllegalStateException("failure");
+					done.countDown();
+				}
+			});
+			tested.start();
+
+			tested.fireEvent(new TestEvent(1, null));
+			tested.fireEvent(new TestEvent(2, null));
+			await(done);
+			assertEquals("failure", reported.poll(10, TimeUnit.SECONDS).getMessage());
+			assertTrue(tested.isRunning());
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(previous);
+		}
+	}
+
+	@Test
+	public void testStopAndStart() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(2);
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(event.getSource());
+				done.countDown();
+			}
+		});
+		tested.start();
+		tested.stop();
+		assertFalse(tested.isRunning());
+		tested.fireEvent(new TestEvent(1, null));
+		assertEquals("[1]", dispatched.toString());
+
+		tested.setWorkerCount(3);
+		tested.start();
+		assertTrue(tested.isRunning());
+		dispatched.clear();
+		tested.fireEvent(new TestEvent(2, null));
+		await(done);
+		assertEquals("[2]", dispatched.toString());
+	}
+
+	/**
+	 * Starts dispatcher with queue of 2 events and fires 3 events, first of them blocks worker until gate is opened.
+	 */
+	private void fillQueue(OverflowPolicy policy) throws InterruptedException {
+		tested.setQueueCapacity(2);
+		tested.setOverflowPolicy(policy);
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				if (event.getSource() == 0) {
+					started.countDown();
+					try {
+						gate.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				dispatched.add(event.getSource());
+			}
+		});
+		tested.start();
+		assertTrue(tested.fireEvent(new TestEvent(0, null)));
+		await(started);
+		assertTrue(tested.fireEvent(new TestEvent(1, null)));
+		assertTrue(tested.fireEvent(new TestEvent(2, null)));
+		assertEquals(2, tested.getQueueSize());
+	}
+
+	private void awaitDispatched(int count) throws InterruptedException {
+		for (int i = 0; i < 1000 && dispatched.size() < count; i++) Thread.sleep(10);
+		assertEquals(count, dispatched.size());
+	}
+
+	@Test
+	public void testDropNewestPolicy() throws InterruptedException {
+		fillQueue(OverflowPolicy.DROP_NEWEST);
+		assertFalse(tested.fireEvent(new TestEvent(3, null)));
+		assertEquals(1, tested.getRejectedEventCount());
+		gate.countDown();
+		awaitDispatched(3);
+		assertEquals("[0, 1, 2]", dispatched.toString());
+	}
+
+	@Test
+	public void testDropOldestPolicy() throws InterruptedException {
+		fillQueue(OverflowPolicy.DROP_OLDEST);
+		assertTrue(tested.fireEvent(new TestEvent(3, null)));
+		assertEquals(1, tested.getRejectedEventCount());
+		assertEquals(2, tested.getQueueSize());
+		gate.countDown();
+		awaitDispatched(3);
+		assertEquals("[0, 2, 3]", dispatched.toString());
+	}
+
+	@Test
+	public void testCallerRunsPolicy() throws InterruptedException {
+		fillQueue(OverflowPolicy.CALLER_RUNS);
+		assertTrue(tested.fireEvent(new TestEvent(3, null)));
+		// dispatched synchronously while worker is still blocked
+		assertEquals("[3]", dispatched.toString());
+		assertEquals(0, tested.getRejectedEventCount());
+		gate.countDown();
+		awaitDispatched(4);
+		assertEquals("[3, 0, 1, 2]", dispatched.toString());
+	}
+
+	@Test
+	public void testBlockPolicyWithTimeout() throws InterruptedException {
+		tested.setBlockTimeout(100);
+		fillQueue(OverflowPolicy.BLOCK);
+		long start = System.currentTimeMillis();
+		assertFalse(tested.fireEvent(new TestEvent(3, null)));
+		assertTrue(System.currentTimeMillis() - start >= 90);
+		assertEquals(1, tested.getRejectedEventCount());
+		gate.countDown();
+		awaitDispatched(3);
+		assertEquals("[0, 1, 2]", dispatched.toString());
+	}
+
+	@Test
+	public void testBlockPolicyWaitsForSpace() throws InterruptedException {
+		fillQueue(OverflowPolicy.BLOCK);
+		final BlockingQueue<Boolean> fired = new LinkedBlockingQueue<Boolean>();
+		new Thread() {
+			@Override
+			public void run() {
+				fired.add(tested.fireEvent(new TestEvent(3, null)));
+			}
+		}.start();
+		assertEquals(null, fired.poll(100, TimeUnit.MILLISECONDS));
+		gate.countDown();
+		assertEquals(Boolean.TRUE, fired.poll(10, TimeUnit.SECONDS));
+		awaitDispatched(4);
+		assertEquals("[0, 1, 2, 3]", dispatched.toString());
+		assertEquals(0, tested.getRejectedEventCount());
+	}
+
+	@Test
+	public void testBlockPolicyInHandlerDoesNotWaitForItsOwnWorker() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(5);
+		tested.setQueueCapacity(1);
+		tested.setOverflowPolicy(OverflowPolicy.BLOCK);
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				// the only worker fires events into its own queue
+				if (event.getSource() == 0) {
+					for (int i = 1; i < 5; i++) tested.fireEvent(new TestEvent(i, null));
+				}
+				dispatched.add(event.getSource());
+				done.countDown();
+			}
+		});
+		tested.start();
+		assertTrue(tested.fireEvent(new TestEvent(0, null)));
+		await(done);
+		assertEquals(0, tested.getRejectedEventCount());
+	}
+
+	@Test
+	public void testBlockPolicyEndsWaitingWhenStopped() throws InterruptedException {
+		fillQueue(OverflowPolicy.BLOCK);
+		final BlockingQueue<Boolean> fired = new LinkedBlockingQueue<Boolean>();
+		new Thread() {
+			@Override
+			public void run() {
+				fired.add(tested.fireEvent(new TestEvent(3, null)));
+			}
+		}.start();
+		assertEquals(null, fired.poll(100, TimeUnit.MILLISECONDS));
+		tested.stop();
+		// nobody drains queue of stopped worker, event is dispatched synchronously
+		assertEquals(Boolean.TRUE, fired.poll(10, TimeUnit.SECONDS));
+		assertTrue("event wasn't dispatched", dispatched.contains(3));
+	}
+
+	@Test
+	public void testExecutorModeLimitsConcurrentEvents() throws InterruptedException {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final BlockingQueue<TestEvent> completed = new LinkedBlockingQueue<TestEvent>();
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			tested.setHandlerExecutor(executor);
+			tested.setMaxConcurrentEvents(2);
+			tested.setDispatchCallback(new DispatchCallback() {
+				@Override
+				public void eventDispatched(AbstractEvent<?, ?> event, Throwable failure) {
+					completed.add((TestEvent) event);
+				}
+			});
+			tested.addHandler(TestEvent.class, new TestHandler() {
+				@Override
+				public void handle(TestEvent event) {
+					int current = running.incrementAndGet();
+					synchronized (maxRunning) {
+						if (current > maxRunning.get()) maxRunning.set(current);
+					}
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					event.chancel();
+				}
+			});
+			tested.addHandler(TestEvent.class, new TestHandler() {
+				@Override
+				public void handle(TestEvent event) {
+					dispatched.add(event.getSource());
+				}
+			});
+			tested.start();
+
+			for (int i = 0; i < 6; i++) assertTrue(tested.fireEvent(new TestEvent(i, null)));
+			for (int i = 0; i < 6; i++) {
+				TestEvent event = completed.poll(10, TimeUnit.SECONDS);
+				assertTrue("event wasn't completed in time", event != null);
+				assertTrue(event.isCancelled());
+			}
+			assertEquals(2, maxRunning.get());
+			// handlers of one event are still invoked in turn, so cancelling stops them
+			assertEquals("[]", dispatched.toString());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testEventRejectedByExecutorIsReported() throws InterruptedException {
+		final BlockingQueue<Throwable> failures = new LinkedBlockingQueue<Throwable>();
+		tested.setHandlerExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("full");
+			}
+		});
+		tested.setMaxConcurrentEvents(1);
+		tested.setDispatchCallback(new DispatchCallback() {
+			@Override
+			public void eventDispatched(AbstractEvent<?, ?> event, Throwable failure) {
+				failures.add(failure);
+			}
+		});
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(event.getSource());
+			}
+		});
+		tested.start();
+
+		assertTrue(tested.fireEvent(new TestEvent(1, null)));
+		assertTrue(tested.fireEvent(new TestEvent(2, null)));
+		assertTrue(failures.poll(10, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+		// permit is released, so following event is submitted too
+		assertTrue(failures.poll(10, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+		assertEquals(2, tested.getRejectedEventCount());
+		assertEquals("[]", dispatched.toString());
+	}
+
+	@Test
+	public void testHandlerOfNewTypeInvalidatesDispatchTable() {
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(event.getSource());
+			}
+		});
+		assertTrue(tested.fireEvent(new SubEvent(1)));
+
+		tested.addHandler(SubEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(-event.getSource());
+			}
+		});
+		assertTrue(tested.fireEvent(new SubEvent(2)));
+		assertEquals("[1, -2, 2]", dispatched.toString());
+	}
+
+	@Test
+	public void testHandlerOfNewTypeAddedDuringDispatch() {
+		final TestHandler subHandler = new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(-event.getSource());
+			}
+		};
+		tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(event.getSource());
+				if (event.getSource() == 1) tested.addHandler(SubEvent.class, subHandler);
+			}
+		});
+
+		// dispatched event keeps its table, following one sees the new type
+		assertTrue(tested.fireEvent(new SubEvent(1)));
+		assertTrue(tested.fireEvent(new SubEvent(2)));
+		assertEquals("[1, -2, 2]", dispatched.toString());
+	}
+
+	private TestHandler recorder(final int id) {
+		return new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(id);
+			}
+		};
+	}
+
+	@Test
+	public void testUnregister() {
+		HandlerRegistration first = tested.addHandler(TestEvent.class, recorder(1));
+		tested.addHandler(TestEvent.class, recorder(2));
+
+		first.unregister();
+		assertFalse(first.isActive());
+		first.unregister();
+		assertTrue(tested.fireEvent(new TestEvent(0, null)));
+		assertEquals("[2]", dispatched.toString());
+	}
+
+	@Test
+	public void testRegistrationsChangedDuringDispatch() {
+		final HandlerRegistration[] registrations = new HandlerRegistration[3];
+		registrations[0] = tested.addHandler(TestEvent.class, new TestHandler() {
+			@Override
+			public void handle(TestEvent event) {
+				dispatched.add(1);
+				if (event.getSource() == 1) {
+					registrations[0].unregister();
+					registrations[1].unregister();
+					tested.addHandler(TestEvent.class, recorder(4));
+				}
+			}
+		});
+		registrations[1] = tested.addHandler(TestEvent.class, recorder(2));
+		registrations[2] = tested.addHandler(TestEvent.class, recorder(3));
+
+		// removed handler is skipped and added one is not invoked by the event being dispatched
+		assertTrue(tested.fireEvent(new TestEvent(1, null)));
+		assertEquals("[1, 3]", dispatched.toString());
+		dispatched.clear();
+		assertTrue(tested.fireEvent(new TestEvent(2, null)));
+		assertEquals("[3, 4]", dispatched.toString());
+	}
+
+	@Test
+	public void testSuspendedHandlerIsSkipped() {
+		HandlerRegistration registration = tested.addHandler(TestEvent.class, recorder(1));
+		tested.addHandler(TestEvent.class, recorder(2));
+
+		registration.suspend();
+		assertTrue(tested.fireEvent(new TestEvent(0, null)));
+		registration.resume();
+		assertTrue(tested.fireEvent(new TestEvent(0, null)));
+		assertEquals("[2, 1, 2]", dispatched.toString());
+	}
+}
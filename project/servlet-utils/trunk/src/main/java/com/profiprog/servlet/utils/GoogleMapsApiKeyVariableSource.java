@@ -11,6 +11,7 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import com.profiprog.configinject.InicializableVariableSource;
+import com.profiprog.configinject.UncacheableVariableSource;
 import com.profiprog.configinject.VariableResolver;
 
 /**
@@ -39,7 +40,7 @@ import com.profiprog.configinject.VariableResolver;
  * 
  * @see com.adaptiweb.utils.commons.VariableResolver
  */
-public class GoogleMapsApiKeyVariableSource implements InicializableVariableSource {
+public class GoogleMapsApiKeyVariableSource implements InicializableVariableSource, UncacheableVariableSource {
 
 	private static final Logger logger = LoggerFactory.getLogger(GoogleMapsApiKeyVariableSource.class);
 
@@ -62,6 +63,11 @@ public class GoogleMapsApiKeyVariableSource implements InicializableVariableSour
 			return null;
 	}
 
+	@Override
+	public boolean isCacheable(String variableName) {
+		return !this.variableName.equals(variableName);
+	}
+
 	protected final HttpServletRequest resolveRequest() {
 		if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes)
 			return ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest();